@@ -0,0 +1,93 @@
+package com.battlesnake.starter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stages of {@link Evaluator} without lookahead on {@value #POSITIONS} copies of a request: one position at a
+ * time, allocating the game state and scores of every call like {@link Evaluator#evaluate}, and all at once through
+ * a {@link PositionBatch} and {@link BatchEvaluator}. Times are per position; filling the batch is measured
+ * separately.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-DLOG_SAMPLE_TURNS=0", "-DLOG_ON_LOSS=false"})
+@State(Scope.Thread)
+public class BatchEvaluationBenchmark {
+    static final int POSITIONS = 1024;
+
+    @Param({Corpus.SMALL, Corpus.STANDARD, Corpus.LARGE, Corpus.CROWDED, Corpus.ROYALE})
+    public String request;
+
+    private MoveRequest moveRequest;
+    private Evaluator evaluator;
+    private PositionBatch batch;
+    private BatchEvaluator batchEvaluator;
+
+    @Setup
+    public void setUp() {
+        moveRequest = Corpus.decode(request);
+        evaluator = new Evaluator(NOPLogger.NOP_LOGGER, null);
+        batch = new PositionBatch(Geometry.of(moveRequest.width, moveRequest.height, moveRequest.wrapped));
+        batchEvaluator = new BatchEvaluator(evaluator.weights());
+        fill();
+    }
+
+    private void fill() {
+        batch.clear();
+        for (int i = 0; i < POSITIONS; i++) {
+            batch.add(moveRequest);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public Evaluator.MoveScore single() {
+        Evaluator.MoveScore moveScore = null;
+        for (int i = 0; i < POSITIONS; i++) {
+            final MoveRequest copy = new MoveRequest();
+            copy.copyFrom(moveRequest);
+            final GameState gameState = new GameState(copy, (BitBoard) null);
+            final int[] moveScores = new int[4];
+            evaluator.considerBounds(gameState, moveScores);
+            evaluator.stopCollisions(gameState, moveScores);
+            final int[] neighbors = new int[4];
+            final int count = gameState.getInBoardNeighbors(gameState.headCell, true, neighbors);
+            evaluator.handleCavities(gameState, moveScores, neighbors, count, new StringBuilder());
+            evaluator.penalizeEdges(gameState, moveScores, neighbors, count);
+            evaluator.incentivizeFood(gameState, moveScores);
+            evaluator.escapeHazards(gameState, moveScores);
+            final Move best = BatchEvaluator.bestMove(moveScores, 0);
+            moveScore = new Evaluator.MoveScore(best, moveScores[best.ordinal()], moveScores);
+        }
+        return moveScore;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public int[] batch() {
+        return batchEvaluator.score(batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public PositionBatch fillBatch() {
+        fill();
+        return batch;
+    }
+}
@@ -0,0 +1,40 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Move requests bundled with the benchmarks under {@code /corpus}.
+ */
+final class Corpus {
+    static final String SMALL = "small-7x7";
+    static final String STANDARD = "standard-11x11";
+    static final String LARGE = "large-19x19";
+    static final String CROWDED = "crowded-11x11";
+    static final String ROYALE = "royale-11x11";
+
+    private Corpus() {
+    }
+
+    static byte[] load(final String name) {
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".json")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No move request named " + name + " in the corpus");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static MoveRequest decode(final String name) {
+        final MoveRequest request = new MoveRequest();
+        try {
+            MoveRequestDecoder.decode(load(name), request);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,53 @@
+package com.battlesnake.starter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning request bytes into a {@link MoveRequest}: the streaming decoder used for /move against the tree path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    @Param({Corpus.SMALL, Corpus.STANDARD, Corpus.LARGE, Corpus.CROWDED, Corpus.ROYALE})
+    public String request;
+
+    private byte[] body;
+    private final MoveRequest moveRequest = new MoveRequest();
+
+    @Setup
+    public void setUp() {
+        body = Corpus.load(request);
+    }
+
+    @Benchmark
+    public MoveRequest streaming() throws IOException {
+        MoveRequestDecoder.decode(body, moveRequest);
+        return moveRequest;
+    }
+
+    @Benchmark
+    public MoveRequest tree() throws IOException {
+        moveRequest.load(JSON_MAPPER.readTree(body));
+        return moveRequest;
+    }
+}
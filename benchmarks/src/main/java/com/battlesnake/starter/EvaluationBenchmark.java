@@ -0,0 +1,53 @@
+package com.battlesnake.starter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole turn from decoded request to chosen move, with the lookahead limited to a fixed depth so the numbers
+ * measure work rather than the time budget. The search runs single-threaded and its transposition table stays warm
+ * between invocations, as between the turns of one game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-DSEARCH_THREADS=1", "-DLOG_SAMPLE_TURNS=0", "-DLOG_ON_LOSS=false"})
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    @Param({Corpus.SMALL, Corpus.STANDARD, Corpus.LARGE, Corpus.CROWDED, Corpus.ROYALE})
+    public String request;
+
+    @Param({"0", "2", "4"})
+    public int depth;
+
+    private MoveRequest moveRequest;
+    private Evaluator evaluator;
+    private BitBoard bitBoard;
+
+    @Setup
+    public void setUp() {
+        moveRequest = Corpus.decode(request);
+        evaluator = new Evaluator(LoggerFactory.getLogger(EvaluationBenchmark.class));
+        evaluator.setMaxSearchDepth(depth);
+    }
+
+    @Benchmark
+    public Evaluator.MoveScore evaluate() {
+        final GameState gameState = new GameState(moveRequest, bitBoard);
+        bitBoard = gameState.bitBoard;
+        return evaluator.evaluate(gameState);
+    }
+}
@@ -0,0 +1,57 @@
+package com.battlesnake.starter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the per-turn state from a decoded request: the {@link GameState} with its board and the search root.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameStateBenchmark {
+    @Param({Corpus.SMALL, Corpus.STANDARD, Corpus.LARGE, Corpus.CROWDED, Corpus.ROYALE})
+    public String request;
+
+    private MoveRequest moveRequest;
+    private GameState gameState;
+    private Position position;
+
+    @Setup
+    public void setUp() {
+        moveRequest = Corpus.decode(request);
+        gameState = new GameState(moveRequest, (BitBoard) null);
+        position = Position.of(gameState);
+    }
+
+    @Benchmark
+    public GameState gameState() {
+        gameState = new GameState(moveRequest, gameState.bitBoard);
+        return gameState;
+    }
+
+    @Benchmark
+    public GameState gameStateFresh() {
+        return new GameState(moveRequest, (BitBoard) null);
+    }
+
+    @Benchmark
+    public Position position() {
+        position = Position.of(gameState, position);
+        return position;
+    }
+}
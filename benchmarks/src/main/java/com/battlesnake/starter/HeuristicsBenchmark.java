@@ -0,0 +1,107 @@
+package com.battlesnake.starter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The heuristic stages of {@link Evaluator#evaluate(GameState)} one by one, and the region analysis, distance and
+ * cost fields they are built on. Stages run on the same state every time, which they leave as they found it, and add
+ * to move scores cleared before every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeuristicsBenchmark {
+    @Param({Corpus.SMALL, Corpus.STANDARD, Corpus.LARGE, Corpus.CROWDED, Corpus.ROYALE})
+    public String request;
+
+    private final int[] moveScores = new int[4];
+    private final int[] neighbors = new int[4];
+    private final StringBuilder string = new StringBuilder();
+    private Evaluator evaluator;
+    private GameState gameState;
+    private final RegionAnalysis regions = new RegionAnalysis();
+    private DistanceField distances;
+    private CostField costs;
+    private int neighborCount;
+
+    @Setup
+    public void setUp() {
+        evaluator = new Evaluator(LoggerFactory.getLogger(HeuristicsBenchmark.class));
+        gameState = new GameState(Corpus.decode(request), (BitBoard) null);
+        evaluator.stopCollisions(gameState, new int[4]);
+        neighborCount = gameState.getInBoardNeighbors(gameState.headCell, true, neighbors);
+        distances = new DistanceField(gameState.bitBoard.cellCount);
+        costs = new CostField(gameState.bitBoard.cellCount);
+    }
+
+    @Benchmark
+    public int[] considerBounds() {
+        Arrays.fill(moveScores, 0);
+        evaluator.considerBounds(gameState, moveScores);
+        return moveScores;
+    }
+
+    @Benchmark
+    public int[] stopCollisions() {
+        Arrays.fill(moveScores, 0);
+        evaluator.stopCollisions(gameState, moveScores);
+        return moveScores;
+    }
+
+    @Benchmark
+    public int[] handleCavities() {
+        Arrays.fill(moveScores, 0);
+        string.setLength(0);
+        evaluator.handleCavities(gameState, moveScores, neighbors, neighborCount, string);
+        return moveScores;
+    }
+
+    @Benchmark
+    public int[] penalizeEdges() {
+        Arrays.fill(moveScores, 0);
+        evaluator.penalizeEdges(gameState, moveScores, neighbors, neighborCount);
+        return moveScores;
+    }
+
+    @Benchmark
+    public int[] incentivizeFood() {
+        Arrays.fill(moveScores, 0);
+        evaluator.incentivizeFood(gameState, moveScores);
+        return moveScores;
+    }
+
+    @Benchmark
+    public RegionAnalysis regionAnalysis() {
+        regions.compute(gameState.bitBoard, neighbors, neighborCount);
+        return regions;
+    }
+
+    @Benchmark
+    public DistanceField distanceField() {
+        distances.compute(gameState.bitBoard, gameState.headCell);
+        return distances;
+    }
+
+    @Benchmark
+    public CostField costField() {
+        costs.compute(gameState.bitBoard, gameState.headCell, gameState.myHealth, gameState.hazardDamage);
+        return costs;
+    }
+}
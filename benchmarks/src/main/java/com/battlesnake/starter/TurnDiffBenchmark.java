@@ -0,0 +1,101 @@
+package com.battlesnake.starter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The board and search root of {@value #TURNS} consecutive turns, played on from a corpus request with random safe
+ * moves: rebuilt from every request, and patched from the previous turn by a {@link TurnDiff}. Times are per turn;
+ * seeds are tried until one keeps our snake alive for all turns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TurnDiffBenchmark {
+    static final int TURNS = 64;
+    private static final int MAX_SEEDS = 1000;
+
+    @Param({Corpus.SMALL, Corpus.STANDARD, Corpus.LARGE, Corpus.CROWDED, Corpus.ROYALE})
+    public String request;
+
+    private MoveRequest[] requests;
+    private BitBoard bitBoard;
+    private Position position;
+    private TurnDiff turnDiff;
+
+    @Setup
+    public void setUp() {
+        final MoveRequest start = Corpus.decode(request);
+        for (int seed = 0; seed < MAX_SEEDS; seed++) {
+            if (record(start, seed)) {
+                turnDiff = new TurnDiff();
+                return;
+            }
+        }
+        throw new IllegalStateException("No seed plays " + TURNS + " turns on from " + request);
+    }
+
+    /**
+     * @return whether our snake survived {@value #TURNS} turns of random safe moves
+     */
+    private boolean record(final MoveRequest start, final int seed) {
+        final Position game = Position.of(new GameState(start, (BitBoard) null));
+        final int[] latencies = new int[game.snakeCount];
+        final int[] targets = new int[game.snakeCount];
+        final int[] safe = new int[4];
+        final SplittableRandom random = new SplittableRandom(seed);
+        requests = new MoveRequest[TURNS];
+        for (int turn = 0; turn < TURNS; turn++) {
+            if (!game.alive[0]) {
+                return false;
+            }
+            requests[turn] = new MoveRequest();
+            requests[turn].load(game, 0, latencies);
+            requests[turn].gameId = start.gameId;
+            requests[turn].turn = start.turn + turn;
+            for (int snake = 0; snake < game.snakeCount; snake++) {
+                final int count = game.alive[snake] ? game.safeMoves(snake, safe) : 0;
+                targets[snake] = count > 0 ? safe[random.nextInt(count)] : Position.NONE;
+            }
+            game.apply(targets);
+        }
+        return true;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TURNS)
+    public Position rebuild() {
+        for (int turn = 0; turn < TURNS; turn++) {
+            final GameState gameState = new GameState(requests[turn], bitBoard);
+            bitBoard = gameState.bitBoard;
+            position = Position.of(gameState, position);
+        }
+        return position;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TURNS)
+    public Position patch() {
+        for (int turn = 0; turn < TURNS; turn++) {
+            final GameState gameState = new GameState(requests[turn], turnDiff);
+            position = turnDiff.position(gameState, position);
+        }
+        return position;
+    }
+}
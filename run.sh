@@ -2,8 +2,16 @@ echo "Building ..."
 cd src/main/java
 pwd
 /usr/bin/javac -d ~/starter-snake-java/build/classes -cp "../../libs/*" `find ./ -name "*.java"`
+cp -r ../resources/. ~/starter-snake-java/build/classes/
 
-echo "Starting ..."
-cd ../../../build/classes
+cd ../../../build
 pwd
-nohup java -cp "../../src/libs/*:." com.battlesnake.starter.Main >> /dev/null &
+rm -f snake.jar snake.jsa
+jar cf snake.jar -C classes .
+CLASSPATH_JARS="../src/libs/*:snake.jar"
+
+echo "Archiving classes ..."
+java -XX:ArchiveClassesAtExit=snake.jsa -DWARMUP=archive -DWARMUP_MILLIS=5000 -cp "$CLASSPATH_JARS" com.battlesnake.starter.Main >> /dev/null 2>&1
+
+echo "Starting ..."
+nohup java -XX:SharedArchiveFile=snake.jsa -DWARMUP=true -cp "$CLASSPATH_JARS" com.battlesnake.starter.Main >> /dev/null &
@@ -0,0 +1,167 @@
+package com.battlesnake.starter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands log records to a background thread so request threads never wait on the log output.
+ * <p>
+ * Records go into a bounded, lock-free ring buffer (one sequence number per slot, so producers only contend on a
+ * single compare-and-set) and are written to slf4j by the daemon thread "log-drain". Arguments are only turned into
+ * text by that thread, so expensive renders belong in an argument's {@code toString()}. When the buffer is full the
+ * record is dropped and counted instead of blocking the caller.
+ */
+final class AsyncLog {
+    static final int CAPACITY = Integer.getInteger("LOG_BUFFER", 4096);
+    static final long DRAIN_INTERVAL_MILLIS = Long.getLong("LOG_DRAIN_INTERVAL", 5);
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncLog.class);
+    private static final AsyncLog INSTANCE = new AsyncLog(CAPACITY);
+
+    private final Entry[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private long head;
+    private long reportedDropped;
+
+    private AsyncLog(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new Entry[size];
+        sequences = new AtomicLongArray(size);
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        Thread drain = new Thread(this::drainLoop, "log-drain");
+        drain.setDaemon(true);
+        drain.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "log-flush"));
+    }
+
+    static AsyncLog get() {
+        return INSTANCE;
+    }
+
+    boolean info(final Logger logger, final String template, final Object arg) {
+        return offer(new Entry(logger, false, template, arg, null, null));
+    }
+
+    boolean info(final Logger logger, final String template, final Object arg0, final Object arg1) {
+        return offer(new Entry(logger, false, template, arg0, arg1, null));
+    }
+
+    boolean warn(final Logger logger, final String message, final Throwable throwable) {
+        return offer(new Entry(logger, true, message, null, null, throwable));
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the bytes rendered as UTF-8 text once the record is written
+     */
+    static Object text(final byte[] bytes) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private boolean offer(final Entry entry) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = entry;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.increment();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        final long interval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, DRAIN_INTERVAL_MILLIS));
+        while (true) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(interval);
+            }
+        }
+    }
+
+    /**
+     * Writes out everything published so far; called by the drain thread and once more on shutdown.
+     */
+    private synchronized int drain() {
+        int count = 0;
+        while (true) {
+            final int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            final Entry entry = slots[index];
+            slots[index] = null;
+            sequences.lazySet(index, head + slots.length);
+            head++;
+            count++;
+            entry.write();
+        }
+        final long droppedNow = dropped.sum();
+        if (droppedNow != reportedDropped) {
+            LOG.warn("Dropped {} log records, buffer full", droppedNow - reportedDropped);
+            reportedDropped = droppedNow;
+        }
+        return count;
+    }
+
+    private static final class Entry {
+        final Logger logger;
+        final boolean warn;
+        final String template;
+        final Object arg0;
+        final Object arg1;
+        final Throwable throwable;
+
+        Entry(final Logger logger, final boolean warn, final String template, final Object arg0, final Object arg1,
+              final Throwable throwable) {
+            this.logger = logger;
+            this.warn = warn;
+            this.template = template;
+            this.arg0 = arg0;
+            this.arg1 = arg1;
+            this.throwable = throwable;
+        }
+
+        void write() {
+            try {
+                if (warn) {
+                    logger.warn(template, throwable);
+                } else {
+                    logger.info(template, arg0, arg1);
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Could not write log record", e);
+            }
+        }
+    }
+}
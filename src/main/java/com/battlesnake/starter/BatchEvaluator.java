@@ -0,0 +1,71 @@
+package com.battlesnake.starter;
+
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * Scores the moves of every position of a {@link PositionBatch} by the stages of an {@link Evaluator} that run
+ * without lookahead: bounds, collisions and duels, cavities, edges, food and hazards.
+ * <p>
+ * The stages are the evaluator's own methods, so batch scores are the scores those stages give position by position.
+ * What the batch saves is the setup around them: every position is loaded into one reused {@link MoveRequest} and
+ * {@link BitBoard}, the stages add into one reused score buffer, and the results go into one flat array instead of a
+ * {@link Evaluator.MoveScore} per position. The evaluator is private to the batch and logs nothing; its opponent
+ * model has no move history, so duels are weighted as if every opponent move were equally likely.
+ */
+final class BatchEvaluator {
+    private final Evaluator evaluator = new Evaluator(NOPLogger.NOP_LOGGER, null);
+    private final MoveRequest request = new MoveRequest();
+    private final int[] moveScores = new int[4];
+    private final int[] neighbors = new int[4];
+    private final StringBuilder string = new StringBuilder();
+    private BitBoard bitBoard;
+    private int[] scores = new int[0];
+
+    BatchEvaluator(final Weights weights) {
+        evaluator.setWeights(weights);
+    }
+
+    /**
+     * @return the score of move {@code move} of position {@code i} at {@code i * 4 + move}; the array is reused by
+     * the next call
+     */
+    int[] score(final PositionBatch batch) {
+        if (scores.length < batch.count * 4) {
+            scores = new int[batch.count * 4];
+        }
+        for (int i = 0; i < batch.count; i++) {
+            request.load(batch, i);
+            final GameState gameState = new GameState(request, bitBoard);
+            bitBoard = gameState.bitBoard;
+            score(gameState);
+            System.arraycopy(moveScores, 0, scores, i * 4, 4);
+        }
+        return scores;
+    }
+
+    private void score(final GameState gameState) {
+        moveScores[0] = moveScores[1] = moveScores[2] = moveScores[3] = 0;
+        evaluator.considerBounds(gameState, moveScores);
+        evaluator.stopCollisions(gameState, moveScores);
+        final int count = gameState.getInBoardNeighbors(gameState.headCell, true, neighbors);
+        string.setLength(0);
+        evaluator.handleCavities(gameState, moveScores, neighbors, count, string);
+        evaluator.penalizeEdges(gameState, moveScores, neighbors, count);
+        evaluator.incentivizeFood(gameState, moveScores);
+        evaluator.escapeHazards(gameState, moveScores);
+    }
+
+    /**
+     * @return the best move of the position in scores returned by {@link #score}, the last one on ties like
+     * {@link Evaluator}
+     */
+    static Move bestMove(final int[] scores, final int index) {
+        int best = 0;
+        for (int move = 1; move < 4; move++) {
+            if (scores[index * 4 + move] >= scores[index * 4 + best]) {
+                best = move;
+            }
+        }
+        return Move.values()[best];
+    }
+}
@@ -0,0 +1,153 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Flat board representation. A cell is addressed by its index {@code y * width + x};
+ * food and hazards are kept as bitsets and the occupation timers as a flat array.
+ */
+public class BitBoard {
+    static final int NONE = -1;
+
+    private static final Move[] MOVES = Move.values();
+
+    final Geometry geometry;
+    final int width;
+    final int height;
+    final int cellCount;
+    final long[] food;
+    final long[] hazards;
+    final int[] occupationTime;
+
+    BitBoard(final Geometry geometry) {
+        this.geometry = geometry;
+        width = geometry.width;
+        height = geometry.height;
+        cellCount = geometry.cellCount;
+        final int words = (cellCount + 63) >>> 6;
+        food = new long[words];
+        hazards = new long[words];
+        occupationTime = new int[cellCount];
+    }
+
+    /**
+     * Clears the board and loads food and hazards, so a board can be reused between turns.
+     */
+    void load(final MoveRequest request) {
+        Arrays.fill(food, 0);
+        Arrays.fill(hazards, 0);
+        Arrays.fill(occupationTime, 0);
+        for (int i = 0; i < request.foodCount; i++) {
+            set(food, request.food[i]);
+        }
+        for (int i = 0; i < request.hazardCount; i++) {
+            set(hazards, request.hazards[i]);
+        }
+    }
+
+    /**
+     * Loads the request into a board that still holds {@code previous} and the occupation times written for it:
+     * only the previous bodies and food are cleared, and hazards are reloaded if they changed. The result equals
+     * {@link #load(MoveRequest)} of the request.
+     */
+    void load(final MoveRequest previous, final MoveRequest request) {
+        for (int snake = 0; snake < previous.snakeCount; snake++) {
+            final int[] body = previous.bodies[snake];
+            for (int i = 0; i < previous.lengths[snake]; i++) {
+                occupationTime[body[i]] = 0;
+            }
+        }
+        for (int i = 0; i < previous.foodCount; i++) {
+            clear(food, previous.food[i]);
+        }
+        for (int i = 0; i < request.foodCount; i++) {
+            set(food, request.food[i]);
+        }
+        if (!Arrays.equals(previous.hazards, 0, previous.hazardCount, request.hazards, 0, request.hazardCount)) {
+            for (int i = 0; i < previous.hazardCount; i++) {
+                clear(hazards, previous.hazards[i]);
+            }
+            for (int i = 0; i < request.hazardCount; i++) {
+                set(hazards, request.hazards[i]);
+            }
+        }
+    }
+
+    static boolean get(final long[] bits, final int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    static void set(final long[] bits, final int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    static void clear(final long[] bits, final int cell) {
+        bits[cell >>> 6] &= ~(1L << cell);
+    }
+
+    int x(final int cell) {
+        return geometry.x(cell);
+    }
+
+    int y(final int cell) {
+        return geometry.y(cell);
+    }
+
+    Coord coord(final int cell) {
+        return new Coord(x(cell), y(cell));
+    }
+
+    boolean isFood(final int cell) {
+        return get(food, cell);
+    }
+
+    boolean isHazard(final int cell) {
+        return get(hazards, cell);
+    }
+
+    boolean isOccupied(final int cell) {
+        return occupationTime[cell] > 1;
+    }
+
+    void setOccupationTime(final int cell, final int time) {
+        occupationTime[cell] = time;
+    }
+
+    boolean isEdge(final int cell) {
+        return geometry.isEdge(cell);
+    }
+
+    /**
+     * @return the direction leading from one cell to an adjacent one or null if they are not adjacent
+     */
+    Move direction(final int from, final int to) {
+        final int move = geometry.direction(from, to);
+        return move < 0 ? null : MOVES[move];
+    }
+
+    boolean isNeighbour(final int a, final int b) {
+        return geometry.direction(a, b) >= 0;
+    }
+
+    /**
+     * Writes all in-board neighbours that are free in {@code freeIn} turns into {@code out}.
+     *
+     * @return the number of neighbours written
+     */
+    int getFreeNeighbors(final int cell, final int freeIn, final int[] out) {
+        final int[] adjacent = geometry.adjacent;
+        final int base = cell * 4;
+        final int end = base + geometry.degrees[cell];
+        int count = 0;
+        for (int i = base; i < end; i++) {
+            if (occupationTime[adjacent[i]] <= freeIn) {
+                out[count++] = adjacent[i];
+            }
+        }
+        return count;
+    }
+
+    int getNeighbors(final int cell, final int[] out) {
+        return getFreeNeighbors(cell, Integer.MAX_VALUE, out);
+    }
+}
@@ -0,0 +1,66 @@
+package com.battlesnake.starter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Lends large search buffers such as transposition tables to evaluators for the duration of a move, so the memory
+ * they take is bounded by the moves evaluated at once rather than by the sessions alive.
+ * <p>
+ * Up to {@code size} buffers are kept between moves, each remembering the owner that returned it. An owner gets
+ * back the buffer it returned last, so its contents carry over between the turns of a game. Other owners take idle
+ * buffers only once the pool is full, the one returned longest ago first, and get it reset.
+ */
+final class BufferPool<T> {
+    static final int SIZE = Integer.getInteger("BUFFER_POOL", 4);
+
+    private final int size;
+    private final Map<T, Object> idle = new LinkedHashMap<>();
+
+    BufferPool(final int size) {
+        this.size = size;
+    }
+
+    /**
+     * @param fits  whether an idle buffer can be used for this move
+     * @param reset forgets what another owner left in a buffer
+     * @return a buffer that fits or null if a new one has to be created
+     */
+    synchronized T acquire(final Object owner, final Predicate<? super T> fits, final Consumer<? super T> reset) {
+        T oldest = null;
+        for (Iterator<Map.Entry<T, Object>> it = idle.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<T, Object> entry = it.next();
+            if (!fits.test(entry.getKey())) {
+                continue;
+            }
+            if (entry.getValue() == owner) {
+                it.remove();
+                return entry.getKey();
+            }
+            if (oldest == null) {
+                oldest = entry.getKey();
+            }
+        }
+        if (oldest == null || idle.size() < size) {
+            return null;
+        }
+        idle.remove(oldest);
+        reset.accept(oldest);
+        return oldest;
+    }
+
+    /**
+     * Returns the buffer after the move; the buffer returned longest ago is dropped if the pool is full.
+     */
+    synchronized void release(final Object owner, final T buffer) {
+        idle.put(buffer, owner);
+        if (idle.size() > size) {
+            final Iterator<T> eldest = idle.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
@@ -26,10 +26,6 @@ public class Coord {
         this.y = y;
     }
 
-    public Coord[] getNeighbors() {
-        return new Coord[]{new Coord(this.x + 1, this.y), new Coord(this.x - 1, this.y), new Coord(this.x, this.y + 1), new Coord(this.x, this.y - 1)};
-    }
-
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -42,12 +38,4 @@ public class Coord {
     public int hashCode() {
         return Objects.hash(x, y);
     }
-
-    int dist(Coord other) {
-        return Math.abs(x - other.x) + Math.abs(y - other.y);
-    }
-
-    boolean isNeighbour(final Coord other) {
-        return dist(other) == 1;
-    }
 }
@@ -0,0 +1,226 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Cheapest paths in health from one source cell, Dijkstra's algorithm with a bucket queue (Dial's algorithm).
+ * <p>
+ * Every step costs one health, a step onto a hazard cell additionally the hazard damage. Edge costs are bounded
+ * by {@code 1 + hazardDamage}, so a ring of that many buckets, kept as doubly linked lists over the cell indices,
+ * replaces the priority queue and every cell is inserted, moved and settled in constant time.
+ * <p>
+ * Like in the {@link DistanceField} a cell is passable once its occupation time is not larger than the number of
+ * steps along the cheapest path, and every reached cell stores a 4 bit mask of the directions in which its
+ * predecessors on cheapest paths lie. Cells that cost the snake all its health are not reached.
+ */
+final class CostField {
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static final int NONE = -1;
+    private static final byte UNSEEN = 0;
+    private static final byte QUEUED = 1;
+    private static final byte SETTLED = 2;
+
+    private final int[] cost;
+    private final int[] steps;
+    private final byte[] predecessors;
+    private final byte[] state;
+    private final int[] next;
+    private final int[] previous;
+    private final int[] queue;
+    private final int[] stamps;
+    private int[] buckets = new int[0];
+    private int generation;
+    private Geometry geometry;
+    private int width;
+    private int height;
+    private int cellCount;
+
+    CostField(final int capacity) {
+        cost = new int[capacity];
+        steps = new int[capacity];
+        predecessors = new byte[capacity];
+        state = new byte[capacity];
+        next = new int[capacity];
+        previous = new int[capacity];
+        queue = new int[capacity];
+        stamps = new int[capacity];
+    }
+
+    int capacity() {
+        return cost.length;
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    int cost(final int cell) {
+        return cost[cell];
+    }
+
+    /**
+     * @return the number of moves along the cheapest path to the cell
+     */
+    int steps(final int cell) {
+        return steps[cell];
+    }
+
+    boolean isReached(final int cell) {
+        return cost[cell] != UNREACHED;
+    }
+
+    /**
+     * @return a copy of the costs of all cells of the board, e.g. to render them later
+     */
+    int[] copyCosts() {
+        return Arrays.copyOf(cost, cellCount);
+    }
+
+    /**
+     * @param health       health of the snake at the source; cells costing at least that much are not reached
+     * @param hazardDamage extra health lost on every step onto a hazard
+     */
+    void compute(final BitBoard board, final int source, final int health, final int hazardDamage) {
+        geometry = board.geometry;
+        width = board.width;
+        height = board.height;
+        cellCount = board.cellCount;
+        Arrays.fill(cost, 0, cellCount, UNREACHED);
+        Arrays.fill(predecessors, 0, cellCount, (byte) 0);
+        Arrays.fill(state, 0, cellCount, UNSEEN);
+        final int bucketCount = 2 + Math.max(0, hazardDamage);
+        if (buckets.length < bucketCount) {
+            buckets = new int[bucketCount];
+        }
+        Arrays.fill(buckets, 0, bucketCount, NONE);
+
+        cost[source] = 0;
+        steps[source] = 0;
+        insert(source, bucketCount);
+        int queued = 1;
+        int current = 0;
+        final int[] occupationTime = board.occupationTime;
+        final long[] hazards = board.hazards;
+        final int[] neighbors = geometry.neighbors;
+        while (queued > 0) {
+            int bucket = current % bucketCount;
+            while (buckets[bucket] == NONE) {
+                current++;
+                bucket = current % bucketCount;
+            }
+            final int cell = buckets[bucket];
+            remove(cell, bucketCount);
+            queued--;
+            state[cell] = SETTLED;
+
+            final int nextSteps = steps[cell] + 1;
+            for (int move = 0; move < 4; move++) {
+                final int neighbor = neighbors[cell * 4 + move];
+                if (neighbor != Geometry.NONE) {
+                    queued += relax(neighbor, move ^ 1, current, nextSteps, health, hazardDamage, occupationTime,
+                            hazards, bucketCount);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 1 if the cell was newly queued, 0 otherwise
+     */
+    private int relax(final int cell, final int back, final int currentCost, final int nextSteps, final int health,
+                      final int hazardDamage, final int[] occupationTime, final long[] hazards, final int bucketCount) {
+        if (state[cell] == SETTLED || occupationTime[cell] > nextSteps) {
+            return 0;
+        }
+        final int newCost = currentCost + 1 + (BitBoard.get(hazards, cell) ? hazardDamage : 0);
+        if (newCost >= health) {
+            return 0;
+        }
+        final int known = cost[cell];
+        if (newCost == known) {
+            predecessors[cell] |= 1 << back;
+            return 0;
+        }
+        if (newCost > known) {
+            return 0;
+        }
+        final boolean queued = state[cell] == QUEUED;
+        if (queued) {
+            remove(cell, bucketCount);
+        }
+        cost[cell] = newCost;
+        steps[cell] = nextSteps;
+        predecessors[cell] = (byte) (1 << back);
+        insert(cell, bucketCount);
+        return queued ? 0 : 1;
+    }
+
+    private void insert(final int cell, final int bucketCount) {
+        final int bucket = cost[cell] % bucketCount;
+        final int head = buckets[bucket];
+        next[cell] = head;
+        previous[cell] = NONE;
+        if (head != NONE) {
+            previous[head] = cell;
+        }
+        buckets[bucket] = cell;
+        state[cell] = QUEUED;
+    }
+
+    private void remove(final int cell, final int bucketCount) {
+        final int before = previous[cell];
+        final int after = next[cell];
+        if (before == NONE) {
+            buckets[cost[cell] % bucketCount] = after;
+        } else {
+            next[before] = after;
+        }
+        if (after != NONE) {
+            previous[after] = before;
+        }
+    }
+
+    /**
+     * Walks the predecessor masks back from {@code target} and collects every cell one step from the source that
+     * lies on a cheapest path to it, i.e. the first steps leading towards the target.
+     *
+     * @return the number of cells written into {@code out}
+     */
+    int firstSteps(final int target, final int[] out) {
+        if (!isReached(target) || steps[target] == 0) {
+            return 0;
+        }
+        if (++generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        int count = 0;
+        int first = 0;
+        int last = 0;
+        queue[last++] = target;
+        stamps[target] = generation;
+        while (first < last) {
+            final int cell = queue[first++];
+            if (steps[cell] == 1) {
+                out[count++] = cell;
+                continue;
+            }
+            final int mask = predecessors[cell];
+            for (int direction = 0; direction < 4; direction++) {
+                if ((mask & (1 << direction)) != 0) {
+                    final int before = geometry.neighbor(cell, direction);
+                    if (stamps[before] != generation) {
+                        stamps[before] = generation;
+                        queue[last++] = before;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,105 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Breadth first distances over cell indices, from one or several sources at once.
+ * <p>
+ * Every reached cell stores its distance and the index of the source that reaches it first. Cells reached by
+ * several sources at the same distance are {@link #CONTESTED}. A cell is passable once its occupation time
+ * is not larger than the distance at which it is reached.
+ */
+final class DistanceField {
+    static final int UNREACHED = Integer.MAX_VALUE;
+    static final int CONTESTED = -1;
+    static final int NO_OWNER = -2;
+
+    private final int[] dist;
+    private final int[] owner;
+    private final int[] queue;
+    private int[] territory = new int[0];
+
+    DistanceField(final int capacity) {
+        dist = new int[capacity];
+        owner = new int[capacity];
+        queue = new int[capacity];
+    }
+
+    /**
+     * @return the number of cells the given source reaches strictly before every other source
+     */
+    int territory(final int source) {
+        return territory[source];
+    }
+
+    void compute(final BitBoard board, final int source) {
+        queue[0] = source;
+        compute(board, queue, 1);
+    }
+
+    /**
+     * Runs one breadth first search from all sources simultaneously.
+     * The sources array may be this field's own queue, so it is read before anything is enqueued.
+     */
+    void compute(final BitBoard board, final int[] sources, final int sourceCount) {
+        final int cellCount = board.cellCount;
+        Arrays.fill(dist, 0, cellCount, UNREACHED);
+        Arrays.fill(owner, 0, cellCount, NO_OWNER);
+        if (territory.length < sourceCount) {
+            territory = new int[sourceCount];
+        } else {
+            Arrays.fill(territory, 0);
+        }
+
+        int last = 0;
+        for (int i = 0; i < sourceCount; i++) {
+            final int source = sources[i];
+            if (dist[source] == UNREACHED) {
+                dist[source] = 0;
+                owner[source] = i;
+                queue[last++] = source;
+            } else {
+                owner[source] = CONTESTED;
+            }
+        }
+
+        final int[] occupationTime = board.occupationTime;
+        final int[] neighbors = board.geometry.neighbors;
+        int first = 0;
+        while (first < last) {
+            final int cell = queue[first++];
+            final int newDist = dist[cell] + 1;
+            final int cellOwner = owner[cell];
+            for (int move = 0; move < 4; move++) {
+                final int neighbor = neighbors[cell * 4 + move];
+                if (neighbor != Geometry.NONE) {
+                    last = visit(neighbor, newDist, cellOwner, occupationTime, last);
+                }
+            }
+        }
+
+        for (int i = 0; i < last; i++) {
+            final int cellOwner = owner[queue[i]];
+            if (cellOwner >= 0) {
+                territory[cellOwner]++;
+            }
+        }
+    }
+
+    private int visit(final int cell, final int newDist, final int cellOwner, final int[] occupationTime, final int last) {
+        final int current = dist[cell];
+        if (current == UNREACHED) {
+            if (occupationTime[cell] > newDist) {
+                return last;
+            }
+            dist[cell] = newDist;
+            owner[cell] = cellOwner;
+            queue[last] = cell;
+            return last + 1;
+        }
+        if (current == newDist && owner[cell] != cellOwner) {
+            owner[cell] = CONTESTED;
+        }
+        return last;
+    }
+}
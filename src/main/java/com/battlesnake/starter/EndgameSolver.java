@@ -0,0 +1,277 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Plays out the endgame of the last two snakes walled into separate regions: neither can reach the other any more,
+ * so the game goes to whoever survives longer in their own region.
+ * <p>
+ * The region of a snake is what a {@link FloodFill} reaches from its head: free cells and cells whose occupation
+ * ends before the snake can get there. Two regions are separated if they share no cell. Within its region a snake
+ * survives as many turns as its longest path that enters no cell twice and enters a body cell only once that is
+ * free. Regions of up to {@link #EXACT_CELLS} cells are solved exactly by a depth first search over bitmasks of
+ * the visited cells, memoised by head and mask; the turn of a state is the number of cells visited, so the memo
+ * stays exact although cells free up over time. Larger regions, and searches that exceed {@link #NODE_LIMIT}
+ * nodes or the deadline, get the parity bound instead: a path alternates between the colours of the checkerboard,
+ * so it is at most one longer than twice the rarer colour. Survival is capped at {@link #HORIZON} turns and, if the
+ * region has no food, at the snake's health. Cells the snake's own tail leaves on the way are not reused, so for a
+ * snake that could chase its tail the result is a lower bound.
+ */
+final class EndgameSolver {
+    static final int EXACT_CELLS = 48;
+    static final int NODE_LIMIT = 100_000;
+    static final int HORIZON = 100;
+
+    private static final int MEMO_BITS = 16;
+    private static final int CHECK_INTERVAL = 1023;
+
+    private long[] ourRegion = new long[0];
+    private long[] theirRegion = new long[0];
+    private int[] queue = new int[0];
+    private int[] depths = new int[0];
+    private int[] local = new int[0];
+    private final int[] cells = new int[EXACT_CELLS];
+    private final int[] release = new int[EXACT_CELLS];
+    private final long[] adjacent = new long[EXACT_CELLS];
+    private final long[] memoKeys = new long[1 << MEMO_BITS];
+    private final int[] memoValues = new int[1 << MEMO_BITS];
+    private final int[] turns = new int[4];
+    private int opponentTurns;
+    private boolean exact;
+    private long nodes;
+    private long deadline;
+    private boolean aborted;
+
+    /**
+     * Solves the endgame if exactly two snakes are left and their regions are separated.
+     *
+     * @param board    board with the occupation times of this turn
+     * @param deadline value of {@link System#nanoTime()} after which exact searches give up
+     * @return whether the snakes are separated; only then {@link #turns(int)} and {@link #opponentTurns()} are set
+     */
+    boolean solve(final BitBoard board, final MoveRequest request, final long deadline) {
+        if (request.snakeCount != 2) {
+            return false;
+        }
+        final int you = request.you;
+        final int opponent = 1 - you;
+        prepare(board.cellCount);
+        final int ourHead = request.head(you);
+        final int theirHead = request.head(opponent);
+        fillRegion(board, ourHead, ourRegion);
+        fillRegion(board, theirHead, theirRegion);
+        for (int i = 0; i < ourRegion.length; i++) {
+            if ((ourRegion[i] & theirRegion[i]) != 0) {
+                return false;
+            }
+        }
+        this.deadline = deadline;
+        nodes = 0;
+        aborted = false;
+        exact = true;
+        final int ourCap = cap(board, ourRegion, request.healths[you]);
+        for (int move = 0; move < 4; move++) {
+            final int next = board.geometry.neighbor(ourHead, move);
+            turns[move] = next == Geometry.NONE || !BitBoard.get(ourRegion, next) || board.occupationTime[next] > 1
+                    ? -1 : survive(board, ourRegion, next, ourCap);
+        }
+        final int theirCap = cap(board, theirRegion, request.healths[opponent]);
+        opponentTurns = 0;
+        for (int move = 0; move < 4; move++) {
+            final int next = board.geometry.neighbor(theirHead, move);
+            if (next != Geometry.NONE && BitBoard.get(theirRegion, next) && board.occupationTime[next] <= 1) {
+                opponentTurns = Math.max(opponentTurns, survive(board, theirRegion, next, theirCap));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the turns we survive after the move, counting the move itself; -1 if the move is not possible
+     */
+    int turns(final int move) {
+        return turns[move];
+    }
+
+    /**
+     * @return the turns the opponent survives with its best move
+     */
+    int opponentTurns() {
+        return opponentTurns;
+    }
+
+    /**
+     * @return whether all results of the last solve are exact rather than bounds
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    private void prepare(final int cellCount) {
+        final int words = (cellCount + 63) >>> 6;
+        if (ourRegion.length != words) {
+            ourRegion = new long[words];
+            theirRegion = new long[words];
+        }
+        if (queue.length < cellCount) {
+            queue = new int[cellCount];
+            depths = new int[cellCount];
+            local = new int[cellCount];
+            Arrays.fill(local, -1);
+        }
+    }
+
+    /**
+     * Marks the cells reachable from the head, without the head itself, like {@link FloodFill} does.
+     */
+    private void fillRegion(final BitBoard board, final int head, final long[] region) {
+        Arrays.fill(region, 0);
+        final int[] adjacent = board.geometry.adjacent;
+        final byte[] degrees = board.geometry.degrees;
+        final int[] occupationTime = board.occupationTime;
+        int first = 0;
+        int last = 0;
+        queue[last] = head;
+        depths[last++] = 0;
+        BitBoard.set(region, head);
+        while (first < last) {
+            final int cell = queue[first];
+            final int depth = depths[first++] + 1;
+            final int end = cell * 4 + degrees[cell];
+            for (int i = cell * 4; i < end; i++) {
+                final int next = adjacent[i];
+                if (BitBoard.get(region, next) || occupationTime[next] > depth) {
+                    continue;
+                }
+                BitBoard.set(region, next);
+                queue[last] = next;
+                depths[last++] = depth;
+            }
+        }
+        BitBoard.clear(region, head);
+    }
+
+    private static int cap(final BitBoard board, final long[] region, final int health) {
+        for (int i = 0; i < region.length; i++) {
+            if ((region[i] & board.food[i]) != 0) {
+                return HORIZON;
+            }
+        }
+        return Math.min(HORIZON, health);
+    }
+
+    /**
+     * @return the turns a snake survives that moves onto the cell of its region now, counting this move
+     */
+    private int survive(final BitBoard board, final long[] region, final int start, final int cap) {
+        int size = 0;
+        for (long word : region) {
+            size += Long.bitCount(word);
+        }
+        if (size <= EXACT_CELLS && !aborted) {
+            final int turns = longestPath(board, region, start, cap);
+            if (!aborted) {
+                return turns;
+            }
+        }
+        exact = false;
+        return Math.min(cap, parityBound(board, region, start, size));
+    }
+
+    /**
+     * Indexes the region's cells locally, so visited cells fit into a bitmask, and searches the longest path.
+     */
+    private int longestPath(final BitBoard board, final long[] region, final int start, final int cap) {
+        int count = 0;
+        for (int cell = 0; cell < board.cellCount; cell++) {
+            if (BitBoard.get(region, cell)) {
+                local[cell] = count;
+                cells[count] = cell;
+                release[count++] = board.occupationTime[cell];
+            }
+        }
+        final int[] neighbors = board.geometry.adjacent;
+        final byte[] degrees = board.geometry.degrees;
+        for (int i = 0; i < count; i++) {
+            final int cell = cells[i];
+            long mask = 0;
+            for (int k = cell * 4; k < cell * 4 + degrees[cell]; k++) {
+                final int neighbor = local[neighbors[k]];
+                if (neighbor >= 0) {
+                    mask |= 1L << neighbor;
+                }
+            }
+            adjacent[i] = mask;
+        }
+        Arrays.fill(memoKeys, -1);
+        final int first = local[start];
+        final int turns = 1 + longest(first, 1L << first, cap);
+        for (int i = 0; i < count; i++) {
+            local[cells[i]] = -1;
+        }
+        return turns;
+    }
+
+    /**
+     * @param mask the cells visited so far, their number is the current turn
+     * @return the number of further turns from the cell, at most {@code cap} minus the current turn
+     */
+    private int longest(final int cell, final long mask, final int cap) {
+        final int turn = Long.bitCount(mask);
+        if (turn >= cap || aborted) {
+            return 0;
+        }
+        if ((++nodes & CHECK_INTERVAL) == 0) {
+            aborted = nodes > NODE_LIMIT || System.nanoTime() - deadline >= 0;
+            if (aborted) {
+                return 0;
+            }
+        }
+        final long key = mask << 6 | cell;
+        final int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - MEMO_BITS));
+        if (memoKeys[slot] == key) {
+            return memoValues[slot];
+        }
+        int best = 0;
+        long moves = adjacent[cell] & ~mask;
+        while (moves != 0) {
+            final int next = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            if (release[next] > turn + 1) {
+                continue;
+            }
+            best = Math.max(best, 1 + longest(next, mask | 1L << next, cap));
+            if (turn + best >= cap) {
+                break;
+            }
+        }
+        if (!aborted) {
+            memoKeys[slot] = key;
+            memoValues[slot] = best;
+        }
+        return best;
+    }
+
+    /**
+     * @return the longest path from the start through the region that alternates the checkerboard colours
+     */
+    private static int parityBound(final BitBoard board, final long[] region, final int start, final int size) {
+        final Geometry geometry = board.geometry;
+        if (geometry.wrapped && ((geometry.width | geometry.height) & 1) != 0) {
+            return size;
+        }
+        final int startColour = (geometry.x(start) + geometry.y(start)) & 1;
+        int same = 0;
+        for (int cell = 0; cell < board.cellCount; cell++) {
+            if (BitBoard.get(region, cell) && ((geometry.x(cell) + geometry.y(cell)) & 1) == startColour) {
+                same++;
+            }
+        }
+        final int other = size - same;
+        return same > other ? 2 * other + 1 : 2 * same;
+    }
+}
@@ -2,59 +2,299 @@ package com.battlesnake.starter;
 
 import org.slf4j.Logger;
 
-import java.util.*;
-
 public class Evaluator {
     final Logger log;
+    private final TurnLog turnLog;
 
     private final int LEFT = 0;
     private final int RIGHT = 1;
     private final int UP = 2;
     private final int DOWN = 3;
 
-    final int DIE_SCORE = -1_000_000;
-    final int FOOD_SCORE = 10;
-    final int CAPTURING_SCORE = 50;
-    final int LOSING_DUEL_SCORE = -70;
-    final int WINNING_DUEL_SCORE = 45;
-    final int LARGE_CAVITY_SCORE = 200;
-    final int EDGE_SCORE = -1;
-    final int HP_THRESHOLD = 25;
-    final int FOOD_SCORE_MULTIPLIER_WHEN_LOW = 3;
-
+    static final int DIE_SCORE = -1_000_000;
+    private static final BufferPool<TranspositionTable> SHARED_TABLES = new BufferPool<>(BufferPool.SIZE);
+    private static final BufferPool<MonteCarloSearch> SHARED_TREES = new BufferPool<>(BufferPool.SIZE);
+    final int LOSING_SCORE = Search.LOSS / 2;
+
+    private final ParallelSearch parallelSearch;
+    private final BufferPool<TranspositionTable> tables;
+    private final BufferPool<MonteCarloSearch> trees;
+    private Search search;
+    private boolean monteCarlo = MonteCarloSearch.ENABLED;
+    private Position position;
+    private CostField costs;
+    private final RegionAnalysis regions = new RegionAnalysis();
+    private final EndgameSolver endgame = new EndgameSolver();
+    private GameState costsState;
+    private final TimeManager timeManager = new TimeManager();
+    private final OpponentModel opponentModel;
+    private int maxSearchDepth = Search.MAX_DEPTH;
+    private Weights weights = Weights.configured();
+
+    /**
+     * Creates the evaluator of a game session; its transposition table and search tree are borrowed from pools
+     * shared by all sessions, and its opponent model learns from the moves of opponents by name across sessions.
+     */
     public Evaluator(final Logger log) {
+        this(log, ParallelSearch.create(), SHARED_TABLES, SHARED_TREES, true);
+    }
+
+    /**
+     * Creates an evaluator that keeps its own transposition table and search tree, for self-play that runs a fixed
+     * set of evaluators. Its opponent model only learns from the running game, so the names of self-play snakes
+     * stay out of the counts shared with the sessions.
+     *
+     * @param parallelSearch search to run the lookahead on, null to search on the calling thread
+     */
+    Evaluator(final Logger log, final ParallelSearch parallelSearch) {
+        this(log, parallelSearch, new BufferPool<>(1), new BufferPool<>(1), false);
+    }
+
+    private Evaluator(final Logger log, final ParallelSearch parallelSearch,
+                      final BufferPool<TranspositionTable> tables, final BufferPool<MonteCarloSearch> trees,
+                      final boolean sharesNames) {
         this.log = log;
+        this.parallelSearch = parallelSearch;
+        this.tables = tables;
+        this.trees = trees;
+        opponentModel = new OpponentModel(sharesNames);
+        turnLog = new TurnLog(log);
     }
 
     public MoveScore evaluate(final GameState gameState) {
+        final long start = System.nanoTime();
+        turnLog.begin(gameState.request.turn);
+        timeManager.begin(gameState, start);
+        opponentModel.observe(gameState.turnDiff != null ? gameState.turnDiff.previousTurn() : null, gameState.request);
         int[] moveScores = new int[]{0, 0, 0, 0};
+        StringBuilder string = new StringBuilder("LargeCavities: ");
+
+        scoreMoves(gameState, moveScores, string, start);
 
+        Move nextMove = chooseMove(moveScores, string);
+        timeManager.end(System.nanoTime());
+        turnLog.end(moveScores[nextMove.ordinal()] <= LOSING_SCORE);
+
+        return new MoveScore(nextMove, moveScores[nextMove.ordinal()], moveScores);
+    }
+
+    /**
+     * Runs the evaluation stages; once the turn's hard deadline has passed, the remaining stages are skipped and the
+     * scores so far decide the move.
+     */
+    private void scoreMoves(final GameState gameState, final int[] moveScores, final StringBuilder string,
+                            final long start) {
+        final Metrics metrics = Metrics.get();
         considerBounds(gameState, moveScores);
+        long time = metrics.record(Metrics.Stage.CONSIDER_BOUNDS, start);
 
         //Prevent your Battlesnake from colliding
         //Consider duel fields
 
         stopCollisions(gameState, moveScores);
+        time = metrics.record(Metrics.Stage.STOP_COLLISIONS, time);
+        final TimeManager.Criticality criticality = assessCriticality(gameState, moveScores);
+        timeManager.allocate(criticality);
+        if (isOutOfTime("handleCavities")) {
+            return;
+        }
 
         //Handle Cavities
-        Coord[] neighbors = gameState.getInBoardNeighbors(gameState.head, true);
-        StringBuilder string = new StringBuilder("LargeCavities: ");
+        int[] neighbors = new int[4];
+        int neighborCount = gameState.getInBoardNeighbors(gameState.headCell, true, neighbors);
 
-        handleCavities(gameState, moveScores, neighbors, string);
+        handleCavities(gameState, moveScores, neighbors, neighborCount, string);
+        time = metrics.record(Metrics.Stage.HANDLE_CAVITIES, time);
+        if (isOutOfTime("solveEndgame")) {
+            return;
+        }
+
+        //Outlast the last opponent once it is walled off
+        solveEndgame(gameState, moveScores);
+        time = metrics.record(Metrics.Stage.SOLVE_ENDGAME, time);
+        if (isOutOfTime("penalizeEdges")) {
+            return;
+        }
 
         //Reduce Edge-Score
-        penalizeEdges(gameState, moveScores, neighbors);
+        penalizeEdges(gameState, moveScores, neighbors, neighborCount);
+        time = metrics.record(Metrics.Stage.PENALIZE_EDGES, time);
+        if (isOutOfTime("incentivizeFood")) {
+            return;
+        }
 
         //Move towards food
         incentivizeFood(gameState, moveScores);
+        time = metrics.record(Metrics.Stage.INCENTIVIZE_FOOD, time);
+        if (isOutOfTime("escapeHazards")) {
+            return;
+        }
 
-        Move nextMove = chooseMove(moveScores, string);
+        //Leave hazards
+        escapeHazards(gameState, moveScores);
+        time = metrics.record(Metrics.Stage.ESCAPE_HAZARDS, time);
 
-        return new MoveScore(nextMove, moveScores[nextMove.ordinal()], moveScores);
+        //Look ahead
+        if (turnLog.isRecording()) {
+            logInfo(criticality + " " + timeManager);
+        }
+        searchAhead(gameState, moveScores, timeManager.searchDeadline());
+        metrics.record(Metrics.Stage.SEARCH_AHEAD, time);
+    }
+
+    private boolean isOutOfTime(final String stage) {
+        if (!timeManager.isExpired()) {
+            return false;
+        }
+        Metrics.get().recordAbort();
+        logInfo("Out of time before " + stage + ", " + timeManager);
+        return true;
+    }
+
+    /**
+     * A turn is forced if at most one move survives, critical if only two do or an opponent's head is at most two
+     * moves away.
+     */
+    private TimeManager.Criticality assessCriticality(final GameState gameState, final int[] moveScores) {
+        int safeMoves = 0;
+        for (int score : moveScores) {
+            if (score > DIE_SCORE / 2) {
+                safeMoves++;
+            }
+        }
+        if (safeMoves <= 1) {
+            return TimeManager.Criticality.FORCED;
+        }
+        if (safeMoves == 2) {
+            return TimeManager.Criticality.CRITICAL;
+        }
+        final MoveRequest request = gameState.request;
+        final Geometry geometry = gameState.bitBoard.geometry;
+        for (int snake = 0; snake < request.snakeCount; snake++) {
+            if (snake != gameState.you && geometry.distance(gameState.headCell, request.head(snake)) <= 2) {
+                return TimeManager.Criticality.CRITICAL;
+            }
+        }
+        return TimeManager.Criticality.NORMAL;
+    }
+
+    Weights weights() {
+        return weights;
+    }
+
+    void setWeights(final Weights weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * Limits the lookahead to a fixed depth, e.g. for reproducible benchmarks and self-play.
+     */
+    void setMaxSearchDepth(final int maxSearchDepth) {
+        this.maxSearchDepth = maxSearchDepth;
+    }
+
+    /**
+     * Switches the lookahead between the alpha-beta search and Monte Carlo tree search, overriding {@code ENGINE}.
+     * Games of more than {@link MonteCarloSearch#MAX_SNAKES} snakes always use the alpha-beta search.
+     */
+    void setMonteCarlo(final boolean monteCarlo) {
+        this.monteCarlo = monteCarlo;
+    }
+
+    /**
+     * Logs the message with the rest of this turn; it is only rendered if the turn's log is written, on the log
+     * thread, so it must not change afterwards.
+     */
+    void logInfo(final Object msg) {
+        turnLog.add(msg);
+    }
+
+    void searchAhead(final GameState gameState, final int[] moveScores, final long deadline) {
+        if (System.nanoTime() - deadline >= 0) {
+            return;
+        }
+        position = gameState.turnDiff != null
+                ? gameState.turnDiff.position(gameState, position)
+                : Position.of(gameState, position);
+        if (turnLog.isRecording() && gameState.turnDiff != null) {
+            logInfo(gameState.turnDiff.toString());
+        }
+        if (monteCarlo && position.snakeCount <= MonteCarloSearch.MAX_SNAKES) {
+            searchMonteCarlo(moveScores, deadline);
+            return;
+        }
+        TranspositionTable table = tables.acquire(this, t -> true, TranspositionTable::clear);
+        if (table == null) {
+            table = new TranspositionTable(TranspositionTable.ENTRIES);
+        }
+        try {
+            search(table, moveScores, deadline);
+        } finally {
+            tables.release(this, table);
+        }
+    }
+
+    private void search(final TranspositionTable table, final int[] moveScores, final long deadline) {
+        table.nextAge();
+        final long searchStart = System.nanoTime();
+        int[] searchScores;
+        if (parallelSearch != null) {
+            searchScores = parallelSearch.run(position, deadline, table, maxSearchDepth);
+            recordSearch(parallelSearch.completedDepth(), parallelSearch.nodes(), searchStart);
+            if (turnLog.isRecording()) {
+                logInfo(parallelSearch + " scores: " + Search.format(searchScores));
+            }
+        } else {
+            if (search == null || !search.fits(position)) {
+                search = new Search(position.geometry, position.snakeCount);
+            }
+            searchScores = search.run(position, deadline, table, maxSearchDepth);
+            recordSearch(search.completedDepth(), search.nodes(), searchStart);
+            if (turnLog.isRecording()) {
+                logInfo(search + " scores: " + Search.format(searchScores));
+            }
+        }
+        if (searchScores == null) {
+            return;
+        }
+        for (int i = 0; i < moveScores.length; i++) {
+            moveScores[i] += searchScores[i];
+        }
     }
 
-    void logInfo(final String msg) {
-        log.info(msg);
+    private static void recordSearch(final int completedDepth, final long nodes, final long searchStart) {
+        final Metrics metrics = Metrics.get();
+        metrics.recordSearchDepth(completedDepth);
+        metrics.recordSearchNodes(nodes, System.nanoTime() - searchStart);
+    }
+
+    private void searchMonteCarlo(final int[] moveScores, final long deadline) {
+        MonteCarloSearch monteCarloSearch = trees.acquire(this, tree -> tree.fits(position), MonteCarloSearch::forget);
+        if (monteCarloSearch == null) {
+            monteCarloSearch = new MonteCarloSearch(position.geometry, position.snakeCount,
+                    parallelSearch != null ? ParallelSearch.THREADS : 1);
+        }
+        try {
+            searchMonteCarlo(monteCarloSearch, moveScores, deadline);
+        } finally {
+            trees.release(this, monteCarloSearch);
+        }
+    }
+
+    private void searchMonteCarlo(final MonteCarloSearch monteCarloSearch, final int[] moveScores,
+                                  final long deadline) {
+        final long searchStart = System.nanoTime();
+        final int[] searchScores = monteCarloSearch.run(position, deadline, weights.hpThreshold);
+        Metrics.get().recordSearchNodes(monteCarloSearch.playouts(), System.nanoTime() - searchStart);
+        if (turnLog.isRecording()) {
+            logInfo(monteCarloSearch + " scores: " + Search.format(searchScores));
+        }
+        if (searchScores == null) {
+            return;
+        }
+        for (int i = 0; i < moveScores.length; i++) {
+            moveScores[i] += searchScores[i];
+        }
     }
 
     private Move chooseMove(final int[] moveScores, final StringBuilder string) {
@@ -67,165 +307,193 @@ public class Evaluator {
                 nextMove = move;
             }
         }
-        logInfo(string.toString());
+        logInfo(string);
         return nextMove;
     }
 
-    private void incentivizeFood(final GameState gameState, final int[] moveScores) {
-        gameState.me.generateDistArray(gameState);
+    void incentivizeFood(final GameState gameState, final int[] moveScores) {
+        final CostField costs = costs(gameState);
 
-        if (gameState.food.length == 0) {
+        final MoveRequest request = gameState.request;
+        if (request.foodCount == 0) {
             return;
         }
 
-        CoordsInt[][] dists = gameState.me.distances;
-
-        printDists(dists);
+        if (turnLog.isRecording()) {
+            logInfo(new DistanceGrid(costs.copyCosts(), costs.width(), costs.height()));
+        }
 
-        Coord[] neighbors = gameState.getInBoardNeighbors(gameState.head, true);
         int currFoodScore = getCurrFoodScore(gameState);
 
-        int lowestDist = Integer.MAX_VALUE;
-        Coord nearest = null;
-        for (Coord food : gameState.food) {
-            final CoordsInt curr = dists[food.x][food.y];
-            if (curr == null) {
+        int lowestCost = Integer.MAX_VALUE;
+        int nearest = BitBoard.NONE;
+        for (int i = 0; i < request.foodCount; i++) {
+            final int cell = request.food[i];
+            if (!costs.isReached(cell)) {
                 continue;
             }
-            if (curr.number <= lowestDist) {
-                lowestDist = curr.number;
-                nearest = food;
+            if (costs.cost(cell) <= lowestCost) {
+                lowestCost = costs.cost(cell);
+                nearest = cell;
             }
         }
 
         //TODO penalize moving away
-        if (nearest != null) {
-            if (contains(neighbors, nearest)) {
-                updateScore(nearest, currFoodScore, gameState.head, moveScores);
-            } else {
-                Set<Coord> added = new HashSet<>();
-                Queue<Coord> toCheck = new ArrayDeque<>();
-                toCheck.add(nearest);
-                added.add(nearest);
-
-                while (!toCheck.isEmpty()) {
-                    Coord curr = toCheck.poll();
-                    for (Coord coord : dists[curr.x][curr.y].coords) {
-                        if (!added.contains(coord)) {
-                            added.add(coord);
-                            if (contains(neighbors, coord)) {
-                                updateScore(coord, currFoodScore, gameState.head, moveScores);
-                            } else {
-                                toCheck.add(coord);
-                            }
-                        }
-                    }
-                }
+        if (nearest != BitBoard.NONE) {
+            int[] firstSteps = new int[4];
+            int count = costs.firstSteps(nearest, firstSteps);
+            updateScores(firstSteps, count, currFoodScore, gameState.headCell, moveScores, gameState.bitBoard);
+        }
+    }
+
+    /**
+     * Leads the snake out of hazards along the cheapest path to the nearest cell without hazard.
+     */
+    void escapeHazards(final GameState gameState, final int[] moveScores) {
+        final BitBoard bitBoard = gameState.bitBoard;
+        if (!bitBoard.isHazard(gameState.headCell)) {
+            return;
+        }
+        final CostField costs = costs(gameState);
+        int lowestCost = Integer.MAX_VALUE;
+        int nearest = BitBoard.NONE;
+        for (int cell = 0; cell < bitBoard.cellCount; cell++) {
+            if (costs.isReached(cell) && !bitBoard.isHazard(cell) && costs.cost(cell) < lowestCost) {
+                lowestCost = costs.cost(cell);
+                nearest = cell;
+            }
+        }
+        if (nearest != BitBoard.NONE && gameState.myHealth - lowestCost <= weights.hpThreshold) {
+            int[] firstSteps = new int[4];
+            int count = costs.firstSteps(nearest, firstSteps);
+            updateScores(firstSteps, count, weights.hazardEscapeScore, gameState.headCell, moveScores, bitBoard);
+            if (turnLog.isRecording()) {
+                logInfo("In hazard; escaping towards " + bitBoard.coord(nearest));
             }
         }
     }
 
-    private boolean contains(final Coord[] arr, final Coord coord) {
-        for (Coord curr : arr) {
-            if (curr.equals(coord)) {
-                return true;
+    /**
+     * @return the cheapest paths in health from our head, computed once per game state
+     */
+    private CostField costs(final GameState gameState) {
+        if (costsState != gameState) {
+            final BitBoard bitBoard = gameState.bitBoard;
+            if (costs == null || costs.capacity() < bitBoard.cellCount) {
+                costs = new CostField(bitBoard.cellCount);
             }
+            costs.compute(bitBoard, gameState.headCell, gameState.myHealth, gameState.hazardDamage);
+            costsState = gameState;
         }
-        return false;
+        return costs;
     }
 
     private int getCurrFoodScore(final GameState gameState) {
         int currFoodScore;
-        if (gameState.me.health <= HP_THRESHOLD) {
-            currFoodScore = FOOD_SCORE * FOOD_SCORE_MULTIPLIER_WHEN_LOW;
+        if (gameState.myHealth <= weights.hpThreshold) {
+            currFoodScore = weights.foodScore * weights.foodScoreMultiplierWhenLow;
             logInfo("Low on hp; Searching food");
         } else {
-            currFoodScore = FOOD_SCORE;
+            currFoodScore = weights.foodScore;
         }
         return currFoodScore;
     }
 
-    private void printDists(final CoordsInt[][] foodDists) {
-        StringBuilder builder = new StringBuilder("\n");
-        for (int y = foodDists[0].length - 1; y >= 0; y--) {
-            builder.append("|");
-            for (final CoordsInt[] foodDist : foodDists) {
-                final int dist = foodDist[y] == null ? Integer.MAX_VALUE : foodDist[y].number;
-                if (dist == Integer.MAX_VALUE) {
-                    builder.append("--");
-                } else if (dist > 15) {
-                    builder.append("ll");
-                } else {
-                    builder.append(String.format("%02d", dist));
-                }
-                builder.append("|");
+    void penalizeEdges(final GameState gameState, final int[] moveScores, final int[] neighbors, final int neighborCount) {
+        for (int i = 0; i < neighborCount; i++) {
+            if (gameState.isEdge(neighbors[i])) {
+                updateScore(neighbors[i], weights.edgeScore, gameState.headCell, moveScores, gameState.bitBoard);
             }
-            builder.append("\n");
         }
-        logInfo(builder.toString());
     }
 
-    private void penalizeEdges(final GameState gameState, final int[] moveScores, final Coord[] neighbors) {
-        for (Coord neighbor : neighbors) {
-            if (gameState.isEdge(neighbor)) {
-                updateScore(neighbor, EDGE_SCORE, gameState.head, moveScores);
-            }
-        }
-    }
-
-    private void handleCavities(final GameState gameState, final int[] moveScores, final Coord[] neighbors, StringBuilder string) {
+    void handleCavities(final GameState gameState, final int[] moveScores, final int[] neighbors, final int neighborCount, StringBuilder string) {
+        final BitBoard bitBoard = gameState.bitBoard;
         boolean largeCavityExists = false;
-        List<Coord> biggestCavities = new ArrayList<>();
+        int[] biggestCavities = new int[4];
+        int biggestCavityCount = 0;
         int biggestCavitySize = -1;
-        for (int i = 0; i < neighbors.length; i++) {
-            final Coord neighbor = neighbors[i];
-            int size = gameState.getCavitySize(neighbor);
-            if (size >= 2 * gameState.me.body.length) {
-                updateScore(neighbor, LARGE_CAVITY_SCORE, gameState.head, moveScores);
+        regions.compute(bitBoard, neighbors, neighborCount);
+        for (int i = 0; i < neighborCount; i++) {
+            final int neighbor = neighbors[i];
+            int size = regions.reachable(i);
+            if (regions.isArticulationPoint(neighbor) && turnLog.isRecording()) {
+                logInfo("Moving to " + bitBoard.coord(neighbor) + " cuts off " + regions.cutOff(neighbor) + " cells");
+            }
+            if (size >= 2 * gameState.myLength) {
+                updateScore(neighbor, weights.largeCavityScore, gameState.headCell, moveScores, bitBoard);
                 string.append(i).append(",");
                 largeCavityExists = true;
             }
             if (size == biggestCavitySize) {
-                biggestCavities.add(neighbor);
+                biggestCavities[biggestCavityCount++] = neighbor;
             } else if (size > biggestCavitySize) {
                 biggestCavitySize = size;
-                biggestCavities.clear();
-                biggestCavities.add(neighbor);
+                biggestCavityCount = 0;
+                biggestCavities[biggestCavityCount++] = neighbor;
             }
         }
         if (!largeCavityExists) {
-            updateScores(biggestCavities.toArray(Coord[]::new), LARGE_CAVITY_SCORE, gameState.head, moveScores);
             string.delete(0, string.length());
-            string.append("Largest cavity: ").append(biggestCavities);
+            string.append("Largest cavity: ");
+            for (int i = 0; i < biggestCavityCount; i++) {
+                updateScore(biggestCavities[i], weights.largeCavityScore, gameState.headCell, moveScores, bitBoard);
+                string.append(bitBoard.direction(gameState.headCell, biggestCavities[i])).append(",");
+            }
+        }
+    }
+
+    /**
+     * Once the last opponent is walled off in a region of its own, moves that survive fewer turns than the best one
+     * lose {@link Search#TURN_SCORE} per turn; if the best move outlasts the opponent, a move that does not is lost.
+     */
+    void solveEndgame(final GameState gameState, final int[] moveScores) {
+        if (!endgame.solve(gameState.bitBoard, gameState.request, timeManager.searchDeadline())) {
+            return;
+        }
+        int best = -1;
+        for (int move = 0; move < moveScores.length; move++) {
+            best = Math.max(best, endgame.turns(move));
+        }
+        final int opponentTurns = endgame.opponentTurns();
+        final boolean winning = endgame.isExact() && best > opponentTurns;
+        for (int move = 0; move < moveScores.length; move++) {
+            final int turns = endgame.turns(move);
+            if (turns < 0 || turns == best) {
+                continue;
+            }
+            moveScores[move] += winning && turns <= opponentTurns ? LOSING_SCORE : Search.TURN_SCORE * (turns - best);
+        }
+        if (turnLog.isRecording()) {
+            logInfo("Endgame" + (endgame.isExact() ? "" : " bound") + ": we survive " + best + " turns, opponent "
+                    + opponentTurns + ", " + endgame.nodes() + " nodes");
         }
     }
 
-    private void stopCollisions(final GameState gameState, final int[] moveScores) {
-        BattleSnake[] opponents = gameState.board.snakes;
-        boolean isHeadEdge = gameState.isEdge(gameState.head);
-        for (final BattleSnake battleSnake : opponents) {
-            Coord[] opponent = battleSnake.body;
-            gameState.updateMinOccupationTime(battleSnake, moveScores, this);
-            if (!Objects.equals(gameState.me.id, battleSnake.id)) {
-                final Coord opponentHead = opponent[0];
-                handleDuelField(opponentHead, opponent.length, moveScores, gameState);
+    void stopCollisions(final GameState gameState, final int[] moveScores) {
+        final MoveRequest request = gameState.request;
+        boolean isHeadEdge = gameState.isEdge(gameState.headCell);
+        for (int snake = 0; snake < request.snakeCount; snake++) {
+            gameState.updateMinOccupationTime(snake, moveScores, this);
+            if (snake != gameState.you) {
+                final int opponentHead = request.head(snake);
+                handleDuelField(snake, opponentHead, request.lengths[snake], moveScores, gameState);
 
                 //Handle catching snakes on edge
                 incentivizeCatchingOnEdge(gameState, moveScores, isHeadEdge, opponentHead);
             }
         }
-        Coord tail = gameState.body[gameState.body.length - 1];
-        gameState.minOccupationTime[tail.x][tail.y] = 1;
+        gameState.bitBoard.setOccupationTime(gameState.tailCell, 1);
     }
 
-    private void incentivizeCatchingOnEdge(final GameState gameState, final int[] moveScores, final boolean isHeadEdge, final Coord opponentHead) {
+    private void incentivizeCatchingOnEdge(final GameState gameState, final int[] moveScores, final boolean isHeadEdge, final int opponentHead) {
         if (!isHeadEdge) {
             if (gameState.isEdge(opponentHead)) {
-                if (gameState.head.isNeighbour(opponentHead)) {
-                    Coord[] moves = gameState.getInBoardNeighbors(opponentHead, true);
-                    if (moves.length == 1) {
-                        updateScores(gameState.getInBoardNeighbors(moves[0], true),
-                                CAPTURING_SCORE, gameState.head, moveScores);
+                if (gameState.bitBoard.isNeighbour(gameState.headCell, opponentHead)) {
+                    int[] moves = new int[4];
+                    if (gameState.getInBoardNeighbors(opponentHead, true, moves) == 1) {
+                        int count = gameState.getInBoardNeighbors(moves[0], true, moves);
+                        updateScores(moves, count, weights.capturingScore, gameState.headCell, moveScores, gameState.bitBoard);
                     } else {
                         System.out.println("??? when checking for possible moves of caught snake");
                     }
@@ -234,60 +502,53 @@ public class Evaluator {
         }
     }
 
-    private void considerBounds(final GameState gameState, final int[] moveScores) {
+    void considerBounds(final GameState gameState, final int[] moveScores) {
         //Prevent your Battlesnake from moving out of bounds
 
-        if (gameState.head.x + 1 >= gameState.width) {
-            moveScores[RIGHT] += DIE_SCORE;
-        } else if (gameState.head.x <= 0) {
-            moveScores[LEFT] += DIE_SCORE;
-        }
-        if (gameState.head.y + 1 >= gameState.height) {
-            moveScores[UP] += DIE_SCORE;
-        } else if (gameState.head.y <= 0) {
-            moveScores[DOWN] += DIE_SCORE;
+        for (int move = 0; move < moveScores.length; move++) {
+            if (gameState.bitBoard.geometry.neighbor(gameState.headCell, move) == Geometry.NONE) {
+                moveScores[move] += DIE_SCORE;
+            }
         }
     }
 
-    private void updateScores(final Coord[] fields, final int score, Coord head, int[] moveScores) {
-        for (Coord field : fields) {
-            updateScore(field, score, head, moveScores);
+    private void updateScores(final int[] fields, final int count, final int score, int head, int[] moveScores, final BitBoard bitBoard) {
+        for (int i = 0; i < count; i++) {
+            updateScore(fields[i], score, head, moveScores, bitBoard);
         }
     }
 
-    public void handleDuelField(Coord otherHead, int opponentLength, final int[] moveScores, final GameState gameState) {
-        Coord[] candidateFields = otherHead.getNeighbors();
-        for (Coord field : candidateFields) {
-            if (gameState.head.dist(field) == 1) {
-                if (opponentLength >= gameState.me.length) {
-                    updateScore(field, LOSING_DUEL_SCORE, gameState.head, moveScores);
-                } else {
-                    updateScore(field, WINNING_DUEL_SCORE, gameState.head, moveScores);
+    /**
+     * Scores the fields both heads can reach by the duel's outcome, weighted by how likely the opponent moves there.
+     */
+    public void handleDuelField(int snake, int otherHead, int opponentLength, final int[] moveScores,
+                                final GameState gameState) {
+        final BitBoard bitBoard = gameState.bitBoard;
+        int[] candidateFields = new int[4];
+        int count = bitBoard.getNeighbors(otherHead, candidateFields);
+        boolean predicted = false;
+        for (int i = 0; i < count; i++) {
+            final int field = candidateFields[i];
+            if (bitBoard.isNeighbour(gameState.headCell, field)) {
+                if (!predicted) {
+                    opponentModel.predict(gameState.request, bitBoard.geometry, snake);
+                    predicted = true;
                 }
+                final double likelihood = opponentModel.likelihood(field);
+                final int score = opponentLength >= gameState.myLength ? weights.losingDuelScore
+                        : weights.winningDuelScore;
+                updateScore(field, (int) Math.round(score * likelihood), gameState.headCell, moveScores, bitBoard);
             }
         }
     }
 
-    public boolean updateScore(Coord field, int score, Coord head, int[] moveScores) {
-        int xDiff = field.x - head.x;
-        int yDiff = field.y - head.y;
-        if (Math.abs(xDiff) == 1 && yDiff == 0) {
-            if (xDiff < 0) {
-                moveScores[LEFT] += score;
-            } else {
-                moveScores[RIGHT] += score;
-            }
-            return true;
-        } else if (Math.abs(yDiff) == 1 && xDiff == 0) {
-            if (yDiff < 0) {
-                moveScores[DOWN] += score;
-            } else {
-                moveScores[UP] += score;
-            }
-            return true;
-        } else {
+    public boolean updateScore(int field, int score, int head, int[] moveScores, final BitBoard bitBoard) {
+        final Move move = bitBoard.direction(head, field);
+        if (move == null) {
             return false;
         }
+        moveScores[move.ordinal()] += score;
+        return true;
     }
 
     public static class MoveScore {
@@ -301,4 +562,40 @@ public class Evaluator {
             this.moveScores = moveScores;
         }
     }
+
+    /**
+     * Cost grid of one turn, formatted only when it is written to the log.
+     */
+    private static final class DistanceGrid {
+        private final int[] dists;
+        private final int width;
+        private final int height;
+
+        DistanceGrid(final int[] dists, final int width, final int height) {
+            this.dists = dists;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("\n");
+            for (int y = height - 1; y >= 0; y--) {
+                builder.append("|");
+                for (int x = 0; x < width; x++) {
+                    final int dist = dists[y * width + x];
+                    if (dist == CostField.UNREACHED) {
+                        builder.append("--");
+                    } else if (dist > 15) {
+                        builder.append("ll");
+                    } else {
+                        builder.append(dist < 10 ? "0" : "").append(dist);
+                    }
+                    builder.append("|");
+                }
+                builder.append("\n");
+            }
+            return builder.toString();
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Reusable breadth first flood fill over cell indices.
+ * <p>
+ * A cell counts as free once its occupation time is not larger than the turn in which it is reached,
+ * so tails that retreat while the snake travels are taken into account. Visited cells are marked with
+ * a generation stamp, so no buffer has to be cleared between fills. Instances are not thread safe;
+ * use {@link #get()} to obtain the one belonging to the current thread.
+ */
+final class FloodFill {
+    private static final ThreadLocal<FloodFill> LOCAL = ThreadLocal.withInitial(FloodFill::new);
+
+    private int[] stamps = new int[0];
+    private int[] queue = new int[0];
+    private int[] depths = new int[0];
+    private int generation;
+
+    static FloodFill get() {
+        return LOCAL.get();
+    }
+
+    private void prepare(final int cellCount) {
+        if (stamps.length < cellCount) {
+            stamps = new int[cellCount];
+            queue = new int[cellCount];
+            depths = new int[cellCount];
+            generation = 0;
+        }
+        generation++;
+        if (generation == 0) {
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Fills from several starts at once, all of them entered next turn: a cell at distance {@code d} from the nearest
+     * start is entered in turn {@code d + 1} at the earliest and counts as free once its occupation time is not
+     * larger. {@link #isFilled(int)} tells the reached cells apart until the next fill.
+     *
+     * @return the number of cells reachable from the starts, including the free starts themselves
+     */
+    int fill(final BitBoard board, final int[] starts, final int count) {
+        prepare(board.cellCount);
+        int last = 0;
+        for (int i = 0; i < count; i++) {
+            final int start = starts[i];
+            if (!board.isOccupied(start) && stamps[start] != generation) {
+                stamps[start] = generation;
+                queue[last] = start;
+                depths[last++] = 1;
+            }
+        }
+        return spread(board, last);
+    }
+
+    boolean isFilled(final int cell) {
+        return stamps[cell] == generation;
+    }
+
+    private int spread(final BitBoard board, int last) {
+        final int[] adjacent = board.geometry.adjacent;
+        final byte[] degrees = board.geometry.degrees;
+        final int[] occupationTime = board.occupationTime;
+        final int stamp = generation;
+
+        int first = 0;
+        while (first < last) {
+            final int cell = queue[first];
+            final int depth = depths[first++] + 1;
+            final int end = cell * 4 + degrees[cell];
+            for (int i = cell * 4; i < end; i++) {
+                last = visit(adjacent[i], depth, occupationTime, stamp, last);
+            }
+        }
+        return last;
+    }
+
+    private int visit(final int cell, final int depth, final int[] occupationTime, final int stamp, final int last) {
+        if (stamps[cell] == stamp || occupationTime[cell] > depth) {
+            return last;
+        }
+        stamps[cell] = stamp;
+        queue[last] = cell;
+        depths[last] = depth;
+        return last + 1;
+    }
+}
@@ -0,0 +1,43 @@
+package com.battlesnake.starter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+
+/**
+ * State of one game our snake plays: the evaluator with its search buffers and the previous turn to patch the next
+ * one from. The transposition table is borrowed from a {@link BufferPool} per move.
+ * <p>
+ * Moves of one game are evaluated one at a time; callers synchronise on the session.
+ */
+public class GameSession {
+    final String gameId;
+    final Evaluator evaluator;
+    private final TurnDiff turnDiff = new TurnDiff();
+    private volatile long lastAccess;
+
+    public GameSession(final String gameId, final Logger log) {
+        this.gameId = gameId;
+        evaluator = new Evaluator(log);
+        touch();
+    }
+
+    void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    synchronized Evaluator.MoveScore move(final JsonNode moveRequest) {
+        return move(GameState.fromTree(moveRequest));
+    }
+
+    synchronized Evaluator.MoveScore move(final MoveRequest moveRequest) {
+        touch();
+        final long start = System.nanoTime();
+        final GameState gameState = new GameState(moveRequest, turnDiff);
+        Metrics.get().record(Metrics.Stage.GAME_STATE, start);
+        return evaluator.evaluate(gameState);
+    }
+}
@@ -2,144 +2,120 @@ package com.battlesnake.starter;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
-import java.util.*;
-
 public class GameState {
-    final BattleSnake me;
-    final Board board;
-    final Coord head;
-    final Coord[] body;
-    final Coord[] food;
+    static final int DEFAULT_TIMEOUT = 500;
+    static final int DEFAULT_HAZARD_DAMAGE = 14;
+
+    final MoveRequest request;
+    final BitBoard bitBoard;
+    final TurnDiff turnDiff;
+    final int you;
+    final int headCell;
+    final int tailCell;
+    final int myLength;
+    final int myHealth;
+    final int myLatency;
     final int width;
     final int height;
-    final int[][] minOccupationTime;
+    final int timeout;
+    final int hazardDamage;
+
+    private final int[] neighborBuffer = new int[4];
 
     public GameState(final JsonNode moveRequest) {
-        me = new BattleSnake(moveRequest.get("you"));
-        board = new Board(moveRequest.get("board"));
-        head = me.head;
-        body = me.body;
-        food = board.food;
-        width = board.width;
-        height = board.height;
-        minOccupationTime = new int[width][height];
+        this(moveRequest, null);
     }
 
-    Coord[] getInBoardNeighbors(final Coord pos, final boolean mustBeFree) {
-        int x = pos.x;
-        int y = pos.y;
-
-        List<Coord> neighbors = new ArrayList<>(4);
+    /**
+     * @param reuse board of a previous turn to load this state into, may be null
+     */
+    public GameState(final JsonNode moveRequest, final BitBoard reuse) {
+        this(fromTree(moveRequest), reuse);
+    }
 
-        if (x + 1 < width) {
-            if (!mustBeFree || !isOccupied(x + 1, y)) {
-                neighbors.add(new Coord(x + 1, y));
-            }
-        }
-        if (x - 1 >= 0) {
-            if (!mustBeFree || !isOccupied(x - 1, y)) {
-                neighbors.add(new Coord(x - 1, y));
-            }
-        }
-        if (y + 1 < height) {
-            if (!mustBeFree || !isOccupied(x, y + 1)) {
-                neighbors.add(new Coord(x, y + 1));
-            }
-        }
-        if (y - 1 >= 0) {
-            if (!mustBeFree || !isOccupied(x, y - 1)) {
-                neighbors.add(new Coord(x, y - 1));
-            }
-        }
+    /**
+     * @param request decoded request; it must stay unchanged while this state is in use
+     * @param reuse   board of a previous turn to load this state into, may be null
+     */
+    GameState(final MoveRequest request, final BitBoard reuse) {
+        this(request, load(request, reuse), null);
+    }
 
-        return neighbors.toArray(Coord[]::new);
+    /**
+     * @param request  decoded request; it must stay unchanged while this state is in use
+     * @param turnDiff state of the game's previous turn to patch into this turn's board and position
+     */
+    GameState(final MoveRequest request, final TurnDiff turnDiff) {
+        this(request, turnDiff.next(request), turnDiff);
     }
 
-    Coord[] getInBoardNeighbors(final Coord pos, final int freeIn) {
-        int x = pos.x;
-        int y = pos.y;
+    private GameState(final MoveRequest request, final BitBoard bitBoard, final TurnDiff turnDiff) {
+        this.request = request;
+        this.bitBoard = bitBoard;
+        this.turnDiff = turnDiff;
+        width = request.width;
+        height = request.height;
+        you = request.you;
+        headCell = request.head(you);
+        tailCell = request.tail(you);
+        myLength = request.lengths[you];
+        myHealth = request.healths[you];
+        myLatency = request.latencies[you];
+        timeout = request.timeout;
+        hazardDamage = request.hazardDamage;
+    }
 
-        List<Coord> neighbors = new ArrayList<>(4);
+    private static BitBoard load(final MoveRequest request, final BitBoard reuse) {
+        final Geometry geometry = Geometry.of(request.width, request.height, request.wrapped);
+        final BitBoard bitBoard = reuse != null && reuse.geometry == geometry ? reuse : new BitBoard(geometry);
+        bitBoard.load(request);
+        return bitBoard;
+    }
 
-        if (x + 1 < width) {
-            if (!isOccupiedIn(x + 1, y, freeIn)) {
-                neighbors.add(new Coord(x + 1, y));
-            }
-        }
-        if (x - 1 >= 0) {
-            if (!isOccupiedIn(x - 1, y, freeIn)) {
-                neighbors.add(new Coord(x - 1, y));
-            }
-        }
-        if (y + 1 < height) {
-            if (!isOccupiedIn(x, y + 1, freeIn)) {
-                neighbors.add(new Coord(x, y + 1));
-            }
-        }
-        if (y - 1 >= 0) {
-            if (!isOccupiedIn(x, y - 1, freeIn)) {
-                neighbors.add(new Coord(x, y - 1));
-            }
-        }
+    static MoveRequest fromTree(final JsonNode moveRequest) {
+        MoveRequest request = new MoveRequest();
+        request.load(moveRequest);
+        return request;
+    }
 
-        return neighbors.toArray(Coord[]::new);
+    int getInBoardNeighbors(final int cell, final boolean mustBeFree, final int[] out) {
+        return bitBoard.getFreeNeighbors(cell, mustBeFree ? 1 : Integer.MAX_VALUE, out);
     }
 
-    private boolean isOccupiedIn(final int x, final int y, final int freeIn) {
-        return minOccupationTime[x][y] > freeIn;
+    int getInBoardNeighbors(final int cell, final int freeIn, final int[] out) {
+        return bitBoard.getFreeNeighbors(cell, freeIn, out);
     }
 
-    boolean isOccupied(final int x, final int y) {
-        return minOccupationTime[x][y] > 1;
+    boolean canEat(final int snake) {
+        final int count = bitBoard.getNeighbors(request.head(snake), neighborBuffer);
+        for (int i = 0; i < count; i++) {
+            if (bitBoard.isFood(neighborBuffer[i])) {
+                return true;
+            }
+        }
+        return false;
     }
 
     //TODO make prettier
-    void updateMinOccupationTime(BattleSnake snake, int[] moveScores, final Evaluator evaluator) {
-        for (int i = 0; i < snake.length; i++) {
-            Coord curr = snake.body[i];
-            minOccupationTime[curr.x][curr.y] = snake.length - i;
-            if (i == snake.length - 1) {
+    void updateMinOccupationTime(int snake, int[] moveScores, final Evaluator evaluator) {
+        final int[] body = request.bodies[snake];
+        final int length = request.lengths[snake];
+        for (int i = 0; i < length; i++) {
+            int curr = body[i];
+            bitBoard.setOccupationTime(curr, length - i);
+            if (i == length - 1) {
                 //TODO for all fields
-                if (snake.canEat(food)) {
-                    minOccupationTime[curr.x][curr.y] = 2;
-                    evaluator.updateScore(curr, evaluator.DIE_SCORE, head, moveScores);
+                if (canEat(snake)) {
+                    bitBoard.setOccupationTime(curr, 2);
+                    evaluator.updateScore(curr, Evaluator.DIE_SCORE, headCell, moveScores, bitBoard);
                 }
             } else {
-                evaluator.updateScore(curr, evaluator.DIE_SCORE, head, moveScores);
+                evaluator.updateScore(curr, Evaluator.DIE_SCORE, headCell, moveScores, bitBoard);
             }
         }
     }
 
-    boolean isEdge(final Coord pos) {
-        return pos.x == 0 || pos.x == width - 1 || pos.y == 0 || pos.y == height - 1;
-    }
-
-    int getCavitySize(final Coord pos) {
-        if (isOccupied(pos.x, pos.y)) {
-            return 0;
-        }
-
-        Set<Coord> queued = new HashSet<>();
-        Stack<CoordInt> stack = new Stack<>();
-        stack.push(new CoordInt(pos, 0));
-        queued.add(pos);
-        int cavitySize = 0;
-
-        while (!stack.isEmpty()) {
-            CoordInt current = stack.pop();
-
-            cavitySize++;
-
-            final int newCount = current.count + 1;
-            Coord[] neighbors = getInBoardNeighbors(current.coord, newCount);
-            for (Coord neighbor : neighbors) {
-                if (!queued.contains(neighbor)) {
-                    stack.add(new CoordInt(neighbor, newCount));
-                    queued.add(neighbor);
-                }
-            }
-        }
-
-        return cavitySize;
+    boolean isEdge(final int cell) {
+        return bitBoard.isEdge(cell);
     }
 }
@@ -0,0 +1,141 @@
+package com.battlesnake.starter;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable geometry of one board size and ruleset: neighbour tables, coordinates, edge flags and distances.
+ * <p>
+ * Built once per width, height and wrapping and shared by all games and threads through {@link #of}. The
+ * neighbours of a cell are stored in {@link Move} ordinal order, {@link #NONE} where a move leaves the board, and
+ * once more as a compact list of the neighbours on the board. On wrapped boards a move across an edge comes back
+ * on the opposite side, so every cell has four neighbours and no cell is an edge.
+ */
+final class Geometry {
+    static final int NONE = BitBoard.NONE;
+    static final int MAX_DISTANCE_TABLE_CELLS = 1024;
+
+    private static final ConcurrentHashMap<Long, Geometry> CACHE = new ConcurrentHashMap<>();
+
+    final int width;
+    final int height;
+    final int cellCount;
+    final boolean wrapped;
+    final int[] neighbors;
+    final int[] adjacent;
+    final byte[] degrees;
+    private final int[] xs;
+    private final int[] ys;
+    private final boolean[] edges;
+    private final short[] distances;
+
+    private Geometry(final int width, final int height, final boolean wrapped) {
+        this.width = width;
+        this.height = height;
+        this.wrapped = wrapped;
+        cellCount = width * height;
+        neighbors = new int[cellCount * 4];
+        adjacent = new int[cellCount * 4];
+        degrees = new byte[cellCount];
+        xs = new int[cellCount];
+        ys = new int[cellCount];
+        edges = new boolean[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            final int x = cell % width;
+            final int y = cell / width;
+            xs[cell] = x;
+            ys[cell] = y;
+            edges[cell] = !wrapped && (x == 0 || x == width - 1 || y == 0 || y == height - 1);
+            neighbors[cell * 4 + Move.LEFT.ordinal()] = cell(x - 1, y);
+            neighbors[cell * 4 + Move.RIGHT.ordinal()] = cell(x + 1, y);
+            neighbors[cell * 4 + Move.UP.ordinal()] = cell(x, y + 1);
+            neighbors[cell * 4 + Move.DOWN.ordinal()] = cell(x, y - 1);
+            int degree = 0;
+            for (int move = 0; move < 4; move++) {
+                final int neighbor = neighbors[cell * 4 + move];
+                if (neighbor != NONE) {
+                    adjacent[cell * 4 + degree++] = neighbor;
+                }
+            }
+            degrees[cell] = (byte) degree;
+        }
+        if (cellCount <= MAX_DISTANCE_TABLE_CELLS) {
+            distances = new short[cellCount * cellCount];
+            for (int a = 0; a < cellCount; a++) {
+                for (int b = 0; b < cellCount; b++) {
+                    distances[a * cellCount + b] = (short) computeDistance(a, b);
+                }
+            }
+        } else {
+            distances = null;
+        }
+    }
+
+    /**
+     * @return the shared geometry of a board
+     */
+    static Geometry of(final int width, final int height, final boolean wrapped) {
+        final long key = (long) width << 32 | (long) height << 1 | (wrapped ? 1 : 0);
+        Geometry geometry = CACHE.get(key);
+        if (geometry == null) {
+            geometry = CACHE.computeIfAbsent(key, k -> new Geometry(width, height, wrapped));
+        }
+        return geometry;
+    }
+
+    private int cell(final int x, final int y) {
+        if (wrapped) {
+            return Math.floorMod(y, height) * width + Math.floorMod(x, width);
+        }
+        return x >= 0 && x < width && y >= 0 && y < height ? y * width + x : NONE;
+    }
+
+    private int computeDistance(final int a, final int b) {
+        int dx = Math.abs(xs[a] - xs[b]);
+        int dy = Math.abs(ys[a] - ys[b]);
+        if (wrapped) {
+            dx = Math.min(dx, width - dx);
+            dy = Math.min(dy, height - dy);
+        }
+        return dx + dy;
+    }
+
+    int x(final int cell) {
+        return xs[cell];
+    }
+
+    int y(final int cell) {
+        return ys[cell];
+    }
+
+    boolean isEdge(final int cell) {
+        return edges[cell];
+    }
+
+    /**
+     * @param move {@link Move} ordinal
+     * @return the cell reached by the move or {@link #NONE} if it leaves the board
+     */
+    int neighbor(final int cell, final int move) {
+        return neighbors[cell * 4 + move];
+    }
+
+    /**
+     * @return the {@link Move} ordinal leading from one cell to an adjacent one, -1 if they are not adjacent
+     */
+    int direction(final int from, final int to) {
+        final int base = from * 4;
+        for (int move = 0; move < 4; move++) {
+            if (neighbors[base + move] == to) {
+                return move;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of moves between two cells on an empty board
+     */
+    int distance(final int a, final int b) {
+        return distances != null ? distances[a * cellCount + b] : computeDistance(a, b);
+    }
+}
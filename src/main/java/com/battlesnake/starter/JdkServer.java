@@ -0,0 +1,211 @@
+package com.battlesnake.starter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front end on the JDK's built-in {@link HttpServer}, an alternative to Spark and Jetty selected with
+ * {@code SERVER=jdk}.
+ * <p>
+ * Requests run on virtual threads where the JDK has them and on a fixed pool of {@code HTTP_THREADS} threads
+ * otherwise. Bodies are read into pooled buffers and move requests decoded from there into pooled
+ * {@link MoveRequest}s, so a turn allocates no request objects regardless of the thread it runs on. The four move
+ * answers, the empty answer and the {@link Main.Handler#index() index} payload are encoded once at startup.
+ */
+final class JdkServer {
+    static final int THREADS = Integer.getInteger("HTTP_THREADS", 2 * Runtime.getRuntime().availableProcessors());
+    static final int BACKLOG = 128;
+    static final Move FALLBACK_MOVE = Move.UP;
+
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    private static final String JSON = "application/json";
+    private static final String PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Main.Handler handler;
+    private final ObjectMapper mapper;
+    private final Logger log;
+    private final byte[][] moveAnswers = new byte[Move.values().length][];
+    private final byte[] emptyAnswer;
+    private final byte[] indexAnswer;
+    private final ConcurrentLinkedQueue<Body> bodies = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<MoveRequest> requests = new ConcurrentLinkedQueue<>();
+
+    JdkServer(final Main.Handler handler, final ObjectMapper mapper, final Logger log) throws IOException {
+        this.handler = handler;
+        this.mapper = mapper;
+        this.log = log;
+        for (Move move : Move.values()) {
+            moveAnswers[move.ordinal()] = mapper.writeValueAsBytes(
+                    Collections.singletonMap("move", move.toString().toLowerCase()));
+        }
+        emptyAnswer = mapper.writeValueAsBytes(Collections.emptyMap());
+        indexAnswer = mapper.writeValueAsBytes(handler.index());
+    }
+
+    /**
+     * Starts serving on the port; the server runs until the process exits.
+     */
+    HttpServer start(final int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/", this::handle);
+        server.setExecutor(createExecutor());
+        server.start();
+        log.info("JDK HTTP server listening on port {}", port);
+        return server;
+    }
+
+    /**
+     * @return a virtual thread per task executor if the running JDK has one, a fixed thread pool otherwise
+     */
+    private ExecutorService createExecutor() {
+        try {
+            final ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            log.info("Serving requests on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.info("Serving requests on {} platform threads", THREADS);
+            return Executors.newFixedThreadPool(THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String path = exchange.getRequestURI().getPath();
+            try {
+                route(exchange, path);
+            } catch (IOException | RuntimeException e) {
+                AsyncLog.get().warn(log, "Something went wrong!", e);
+                if (exchange.getResponseCode() < 0) {
+                    answerFailure(exchange, path);
+                }
+            }
+        }
+    }
+
+    private void route(final HttpExchange exchange, final String path) throws IOException {
+        final boolean post = "POST".equals(exchange.getRequestMethod());
+        switch (path) {
+            case "/" -> send(exchange, 200, JSON, indexAnswer);
+            case "/metrics" -> send(exchange, 200, PROMETHEUS,
+                    Metrics.get().render().getBytes(StandardCharsets.UTF_8));
+            case "/move" -> {
+                if (post) {
+                    move(exchange);
+                } else {
+                    send(exchange, 405, JSON, emptyAnswer);
+                }
+            }
+            case "/start", "/end" -> {
+                if (post) {
+                    startOrEnd(exchange, path);
+                } else {
+                    send(exchange, 405, JSON, emptyAnswer);
+                }
+            }
+            default -> send(exchange, 404, JSON, emptyAnswer);
+        }
+    }
+
+    /**
+     * Answers a request that failed before its response was sent: a failed move still gets a move, as the engine
+     * treats a dropped connection like a timeout, everything else a 500.
+     */
+    private void answerFailure(final HttpExchange exchange, final String path) throws IOException {
+        if ("/move".equals(path)) {
+            send(exchange, 200, JSON, moveAnswers[FALLBACK_MOVE.ordinal()]);
+        } else {
+            send(exchange, 500, JSON, emptyAnswer);
+        }
+    }
+
+    private void move(final HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        Body body = bodies.poll();
+        if (body == null) {
+            body = new Body();
+        }
+        MoveRequest request = requests.poll();
+        if (request == null) {
+            request = new MoveRequest();
+        }
+        try {
+            try (InputStream in = exchange.getRequestBody()) {
+                body.read(in);
+            }
+            MoveRequestDecoder.decode(body.bytes, body.length, request);
+            Metrics.get().record(Metrics.Stage.PARSE, start);
+            final Move move = handler.decide(request).bestMove;
+            final byte[] answer = moveAnswers[move.ordinal()];
+            send(exchange, 200, JSON, answer);
+            Metrics.get().record(Metrics.Stage.MOVE, start);
+            if (TurnLog.isSampled(request.turn)) {
+                AsyncLog.get().info(log, "/move called with: {}",
+                        AsyncLog.text(Arrays.copyOf(body.bytes, body.length)));
+                AsyncLog.get().info(log, "Responding with: {}", AsyncLog.text(answer));
+            }
+        } finally {
+            bodies.offer(body);
+            requests.offer(request);
+        }
+    }
+
+    private void startOrEnd(final HttpExchange exchange, final String path) throws IOException {
+        final byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        if ("/start".equals(path)) {
+            handler.start(mapper.readTree(body));
+        } else {
+            handler.end(mapper.readTree(body));
+        }
+        send(exchange, 200, JSON, emptyAnswer);
+        AsyncLog.get().info(log, "{} called with: {}", path, AsyncLog.text(body));
+    }
+
+    /**
+     * Reusable request body buffer, grown to the largest request read so far.
+     */
+    private static final class Body {
+        byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+        int length;
+
+        void read(final InputStream in) throws IOException {
+            length = 0;
+            int read;
+            while ((read = in.read(bytes, length, bytes.length - length)) >= 0) {
+                length += read;
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+            }
+        }
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String type, final byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
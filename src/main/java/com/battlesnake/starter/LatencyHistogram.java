@@ -0,0 +1,129 @@
+package com.battlesnake.starter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram with fixed buckets, by default of durations in nanoseconds with millisecond bounds.
+ * <p>
+ * Every bucket is a {@link LongAdder}, whose striped cells keep concurrent games from contending on a shared counter,
+ * so recording costs a few nanoseconds and never locks. A value falls into the first bucket whose bound is not
+ * smaller; the last bucket takes everything above.
+ */
+final class LatencyHistogram {
+    /**
+     * Upper bounds of the default buckets in nanoseconds, from 1 ms to 1 s.
+     */
+    static final long[] MILLISECONDS = {
+            1_000_000, 2_000_000, 5_000_000, 10_000_000, 20_000_000, 50_000_000,
+            100_000_000, 200_000_000, 300_000_000, 400_000_000, 500_000_000, 1_000_000_000};
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final long[] bounds;
+    private final LongAdder[] counts;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    LatencyHistogram() {
+        this(MILLISECONDS);
+    }
+
+    LatencyHistogram(final long[] bounds) {
+        this.bounds = bounds;
+        counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(final long value) {
+        int bucket = 0;
+        while (bucket < bounds.length && value > bounds[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    void reset() {
+        for (LongAdder bucket : counts) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return the mean of durations recorded in nanoseconds, in milliseconds
+     */
+    double meanMillis() {
+        final long samples = count.sum();
+        return samples == 0 ? 0 : sum.sum() / NANOS_PER_MILLI / samples;
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the given quantile, -1 if it is above all bounds
+     */
+    long quantileBound(final double quantile) {
+        final long target = (long) Math.ceil(count.sum() * quantile);
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts[i].sum();
+            if (seen >= target) {
+                return bounds[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the cumulative buckets, sum and count in the Prometheus text format.
+     *
+     * @param labels labels to put before {@code le}, each followed by a comma
+     * @param scale  divisor turning recorded values into the rendered unit
+     */
+    void write(final StringBuilder out, final String name, final String labels, final double scale) {
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i].sum();
+            out.append(name).append("_bucket{").append(labels).append("le=\"");
+            if (i < bounds.length) {
+                out.append(scale == 1 ? Long.toString(bounds[i]) : Double.toString(bounds[i] / scale));
+            } else {
+                out.append("+Inf");
+            }
+            out.append("\"} ").append(cumulative).append('\n');
+        }
+        final String suffix = labels.isEmpty() ? "" : "{" + labels.substring(0, labels.length() - 1) + "}";
+        out.append(name).append("_sum").append(suffix).append(' ')
+                .append(scale == 1 ? Long.toString(sum.sum()) : Double.toString(sum.sum() / scale)).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(cumulative).append('\n');
+    }
+
+    /**
+     * @return a bar chart of the buckets of durations recorded in nanoseconds, in milliseconds
+     */
+    @Override
+    public String toString() {
+        final long samples = Math.max(1, count.sum());
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            final long bucket = counts[i].sum();
+            if (bucket == 0) {
+                continue;
+            }
+            builder.append(i < bounds.length
+                            ? String.format("  <=%4d ms", Math.round(bounds[i] / NANOS_PER_MILLI))
+                            : String.format("  >%5d ms", Math.round(bounds[bounds.length - 1] / NANOS_PER_MILLI)))
+                    .append(String.format(" %9d %6.2f%% ", bucket, 100.0 * bucket / samples))
+                    .append("#".repeat((int) Math.round(40.0 * bucket / samples)))
+                    .append("\n");
+        }
+        return builder.toString();
+    }
+}
@@ -1,6 +1,5 @@
 package com.battlesnake.starter;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -8,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import spark.Request;
 import spark.Response;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -22,11 +22,15 @@ import static spark.Spark.*;
  */
 public class Main {
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
-    private static final Handler HANDLER = new Handler();
     private static final Logger LOG = LoggerFactory.getLogger(Main.class);
+    private static final Handler HANDLER = new Handler();
 
     /**
-     * Main entry point.
+     * Main entry point. Serves with Spark unless {@code SERVER=jdk} selects the {@link JdkServer}.
+     * <p>
+     * {@code WARMUP=true} replays the {@link Warmup} corpus before the port opens; {@code WARMUP=archive} also
+     * exits once the server is up, so a run with {@code -XX:ArchiveClassesAtExit} dumps a class data sharing
+     * archive of everything loaded while warming up and serving.
      *
      * @param args are ignored.
      */
@@ -39,11 +43,37 @@ public class Main {
         } else {
             LOG.info("Found system provided port: {}", port);
         }
-        port(Integer.parseInt(port));
-        get("/", HANDLER::process, JSON_MAPPER::writeValueAsString);
-        post("/start", HANDLER::process, JSON_MAPPER::writeValueAsString);
-        post("/move", HANDLER::process, JSON_MAPPER::writeValueAsString);
-        post("/end", HANDLER::process, JSON_MAPPER::writeValueAsString);
+        final String warmup = System.getProperty("WARMUP", "false");
+        if (!"false".equals(warmup)) {
+            try {
+                Warmup.run(HANDLER, JSON_MAPPER, LOG);
+            } catch (IOException e) {
+                LOG.warn("Warm-up failed", e);
+            }
+        }
+        if ("jdk".equals(System.getProperty("SERVER"))) {
+            try {
+                new JdkServer(HANDLER, JSON_MAPPER, LOG).start(Integer.parseInt(port));
+            } catch (IOException e) {
+                LOG.error("Could not start the JDK HTTP server", e);
+                System.exit(1);
+            }
+        } else {
+            port(Integer.parseInt(port));
+            get("/", HANDLER::process, JSON_MAPPER::writeValueAsString);
+            post("/start", HANDLER::process, JSON_MAPPER::writeValueAsString);
+            post("/move", HANDLER::process, JSON_MAPPER::writeValueAsString);
+            post("/end", HANDLER::process, JSON_MAPPER::writeValueAsString);
+            get("/metrics", (req, res) -> {
+                res.type("text/plain; version=0.0.4; charset=utf-8");
+                return Metrics.get().render();
+            });
+            awaitInitialization();
+        }
+        if ("archive".equals(warmup)) {
+            LOG.info("Warm-up for the class data archive done, exiting");
+            System.exit(0);
+        }
     }
 
     /**
@@ -56,29 +86,35 @@ public class Main {
          */
 
         private static final Map<String, String> EMPTY = new HashMap<>();
-        Evaluator evaluator;
+        private final SessionRegistry sessions = new SessionRegistry(LOG, SessionRegistry.IDLE_TIMEOUT_SECONDS);
 
         /**
          * Generic processor that prints out the request and response from the methods.
          */
         public Map<String, String> process(Request req, Response res) {
             try {
-                JsonNode parsedRequest = JSON_MAPPER.readTree(req.body());
+                final long start = System.nanoTime();
                 String uri = req.uri();
-                LOG.info("{} called with: {}", uri, req.body());
+                MoveRequest moveRequest = null;
                 Map<String, String> snakeResponse = switch (uri) {
                     case "/" -> index();
-                    case "/start" -> start(parsedRequest);
-                    case "/move" -> move(parsedRequest);
-                    case "/end" -> end(parsedRequest);
+                    case "/start" -> start(JSON_MAPPER.readTree(req.body()));
+                    case "/move" -> move(moveRequest = decode(req.bodyAsBytes()));
+                    case "/end" -> end(JSON_MAPPER.readTree(req.body()));
                     default -> throw new IllegalAccessError("Strange call made to the snake: " + uri);
                 };
 
-                LOG.info("Responding with: {}", JSON_MAPPER.writeValueAsString(snakeResponse));
+                if (moveRequest != null) {
+                    Metrics.get().record(Metrics.Stage.MOVE, start);
+                }
+                if (moveRequest == null || TurnLog.isSampled(moveRequest.turn)) {
+                    AsyncLog.get().info(LOG, "{} called with: {}", uri, AsyncLog.text(req.bodyAsBytes()));
+                    AsyncLog.get().info(LOG, "Responding with: {}", snakeResponse);
+                }
 
                 return snakeResponse;
-            } catch (JsonProcessingException e) {
-                LOG.warn("Something went wrong!", e);
+            } catch (IOException e) {
+                AsyncLog.get().warn(LOG, "Something went wrong!", e);
                 return null;
             }
         }
@@ -114,7 +150,7 @@ public class Main {
          */
 
         public Map<String, String> start(JsonNode startRequest) {
-            evaluator = new Evaluator(LOG);
+            sessions.start(gameId(startRequest));
             return EMPTY;
         }
 
@@ -140,14 +176,34 @@ public class Main {
 
         public Map<String, String> move(JsonNode moveRequest) {
 
-            if (evaluator == null) {
-                evaluator = new Evaluator(LOG);
-            }
+            GameSession session = sessions.get(gameId(moveRequest));
+
+            return answer(session.move(moveRequest));
+        }
+
+        /**
+         * Same as {@link #move(JsonNode)} for a request decoded by {@link MoveRequestDecoder}.
+         */
+        public Map<String, String> move(MoveRequest moveRequest) {
+
+            return answer(decide(moveRequest));
+        }
 
-            GameState gameState = new GameState(moveRequest);
+        Evaluator.MoveScore decide(MoveRequest moveRequest) {
 
-            Evaluator.MoveScore moveScore = evaluator.evaluate(gameState);
+            GameSession session = sessions.get(moveRequest.gameId);
 
+            return session.move(moveRequest);
+        }
+
+        private static MoveRequest decode(final byte[] body) throws IOException {
+            final long start = System.nanoTime();
+            final MoveRequest moveRequest = MoveRequestDecoder.decode(body);
+            Metrics.get().record(Metrics.Stage.PARSE, start);
+            return moveRequest;
+        }
+
+        private static Map<String, String> answer(Evaluator.MoveScore moveScore) {
             final String moveString = Objects.requireNonNull(moveScore.bestMove).toString().toLowerCase();
 
             Map<String, String> answer = new HashMap<>();
@@ -168,8 +224,13 @@ public class Main {
          * @return responses back to the engine are ignored.
          */
         public Map<String, String> end(JsonNode endRequest) {
+            sessions.end(gameId(endRequest));
             return EMPTY;
         }
+
+        private static String gameId(JsonNode request) {
+            return request.path("game").path("id").asText("");
+        }
     }
 
 }
@@ -0,0 +1,176 @@
+package com.battlesnake.starter;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process wide timings of move requests, exposed in the Prometheus text format on {@code GET /metrics}.
+ * <p>
+ * Every histogram is a {@link LatencyHistogram} on lock-free buckets. Stage durations are kept in nanoseconds and
+ * rendered in seconds. Garbage collection pauses are recorded from the collectors' notifications.
+ */
+final class Metrics {
+    /**
+     * Upper bounds of the duration buckets in nanoseconds, from 1 us to 1 s.
+     */
+    static final long[] DURATION_BOUNDS = {
+            1_000, 2_000, 5_000, 10_000, 20_000, 50_000, 100_000, 200_000, 500_000,
+            1_000_000, 2_000_000, 5_000_000, 10_000_000, 20_000_000, 50_000_000,
+            100_000_000, 200_000_000, 300_000_000, 400_000_000, 500_000_000, 1_000_000_000};
+    static final long[] DEPTH_BOUNDS = {1, 2, 3, 4, 5, 6, 8, 10, 12, 16, 20, 24, 32};
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final Metrics INSTANCE = new Metrics();
+
+    /**
+     * Timed parts of a move request; the evaluator stages are named after their methods.
+     */
+    enum Stage {
+        PARSE("parse"),
+        GAME_STATE("gameState"),
+        CONSIDER_BOUNDS("considerBounds"),
+        STOP_COLLISIONS("stopCollisions"),
+        HANDLE_CAVITIES("handleCavities"),
+        SOLVE_ENDGAME("solveEndgame"),
+        PENALIZE_EDGES("penalizeEdges"),
+        INCENTIVIZE_FOOD("incentivizeFood"),
+        ESCAPE_HAZARDS("escapeHazards"),
+        SEARCH_AHEAD("searchAhead"),
+        MOVE("move");
+
+        final String label;
+
+        Stage(final String label) {
+            this.label = label;
+        }
+    }
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LatencyHistogram searchDepth = new LatencyHistogram(DEPTH_BOUNDS);
+    private final LatencyHistogram gcPauses = new LatencyHistogram(DURATION_BOUNDS);
+    private final LongAdder searchNodes = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder aborts = new LongAdder();
+    private volatile double lastNodesPerSecond;
+
+    private Metrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram(DURATION_BOUNDS);
+        }
+        listenToGarbageCollections();
+    }
+
+    static Metrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the time since {@code start} for the stage.
+     *
+     * @return the current {@link System#nanoTime()}, the start of the next stage
+     */
+    long record(final Stage stage, final long start) {
+        final long now = System.nanoTime();
+        stages[stage.ordinal()].record(now - start);
+        return now;
+    }
+
+    void recordSearchDepth(final int depth) {
+        searchDepth.record(depth);
+    }
+
+    /**
+     * @param nodes nodes or playouts the search visited in the given time
+     */
+    void recordSearchNodes(final long nodes, final long nanos) {
+        searchNodes.add(nodes);
+        searchNanos.add(nanos);
+        if (nanos > 0) {
+            lastNodesPerSecond = nodes * NANOS_PER_SECOND / nanos;
+        }
+    }
+
+    /**
+     * Counts a turn that ran out of time before all evaluator stages were done.
+     */
+    void recordAbort() {
+        aborts.increment();
+    }
+
+    /**
+     * Forgets everything recorded so far, e.g. the requests replayed to warm up.
+     */
+    void reset() {
+        for (LatencyHistogram stage : stages) {
+            stage.reset();
+        }
+        searchDepth.reset();
+        gcPauses.reset();
+        searchNodes.reset();
+        searchNanos.reset();
+        aborts.reset();
+        lastNodesPerSecond = 0;
+    }
+
+    private void listenToGarbageCollections() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(collector instanceof NotificationEmitter) || !isPausing(collector.getName())) {
+                continue;
+            }
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    final GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    gcPauses.record(info.getGcInfo().getDuration() * 1_000_000);
+                }
+            }, null, null);
+        }
+    }
+
+    /**
+     * Concurrent collectors report whole cycles that mostly run next to the application; only count pauses.
+     */
+    private static boolean isPausing(final String collectorName) {
+        return !collectorName.contains("Concurrent") && !collectorName.contains("Cycles");
+    }
+
+    /**
+     * @return all metrics in the Prometheus text exposition format
+     */
+    String render() {
+        final StringBuilder out = new StringBuilder(16 * 1024);
+        header(out, "battlesnake_stage_seconds", "histogram", "Time spent in each stage of a move request.");
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()].write(out, "battlesnake_stage_seconds", "stage=\"" + stage.label + "\",",
+                    NANOS_PER_SECOND);
+        }
+        header(out, "battlesnake_search_depth", "histogram", "Depth completed by the alpha-beta search per move.");
+        searchDepth.write(out, "battlesnake_search_depth", "", 1);
+        header(out, "battlesnake_search_nodes_total", "counter", "Nodes or playouts visited by the search.");
+        out.append("battlesnake_search_nodes_total ").append(searchNodes.sum()).append('\n');
+        header(out, "battlesnake_search_seconds_total", "counter", "Time spent searching.");
+        out.append("battlesnake_search_seconds_total ").append(searchNanos.sum() / NANOS_PER_SECOND).append('\n');
+        header(out, "battlesnake_search_nodes_per_second", "gauge", "Search speed of the latest move.");
+        out.append("battlesnake_search_nodes_per_second ").append(lastNodesPerSecond).append('\n');
+        header(out, "battlesnake_deadline_aborts_total", "counter", "Turns that skipped stages at the deadline.");
+        out.append("battlesnake_deadline_aborts_total ").append(aborts.sum()).append('\n');
+        header(out, "battlesnake_gc_pause_seconds", "histogram", "Garbage collection pauses.");
+        gcPauses.write(out, "battlesnake_gc_pause_seconds", "", NANOS_PER_SECOND);
+        header(out, "jvm_gc_collection_seconds_total", "counter", "Accumulated collection time per collector.");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.append("jvm_gc_collection_seconds_total{gc=\"").append(collector.getName()).append("\"} ")
+                    .append(Math.max(0, collector.getCollectionTime()) / 1e3).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void header(final StringBuilder out, final String name, final String type, final String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+}
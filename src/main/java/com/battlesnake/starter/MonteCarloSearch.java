@@ -0,0 +1,533 @@
+package com.battlesnake.starter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monte Carlo tree search over simultaneous moves with decoupled UCT, the alternative to the alpha-beta
+ * {@link Search} selected with {@code -DENGINE=mcts}.
+ * <p>
+ * Every node keeps separate visit counts and value sums per snake and move; each snake picks its move by UCT on its
+ * own statistics and the joint move leads to the child node. Leaves are expanded one per playout and valued by a
+ * short rollout with a policy following the evaluator's heuristics (no head-to-head with longer snakes, food when
+ * low on health, open space otherwise) and the territory split at its end.
+ * <p>
+ * Nodes live in a preallocated arena of primitive arrays. Several threads grow the same tree; a move being explored
+ * counts as a visit without reward (virtual loss) until its playout returns, which spreads the threads over
+ * different lines. Between turns of one game the subtree of the move that was actually played is kept as long as
+ * the arena is less than half full.
+ * <p>
+ * A joint action packs two bits per snake into an int, so the search takes at most {@link #MAX_SNAKES} snakes;
+ * larger games are left to {@link Search}.
+ */
+final class MonteCarloSearch {
+    static final boolean ENABLED = "mcts".equalsIgnoreCase(System.getProperty("ENGINE", "alphabeta"));
+    static final int STAT_SLOTS = Integer.getInteger("MCTS_STATS", 1 << 21);
+    static final int ROLLOUT_DEPTH = 8;
+    static final int MAX_TREE_DEPTH = Position.MAX_UNDO - ROLLOUT_DEPTH - 1;
+    static final int SCORE_SCALE = 1000;
+    static final int MAX_SNAKES = Integer.SIZE / 2;
+
+    private static final int NONE = -1;
+    private static final long VALUE_ONE = 1 << 16;
+    private static final double EXPLORATION = 0.7;
+    private static final int THREADS = ParallelSearch.THREADS;
+    private static final ForkJoinPool POOL = THREADS > 1 ? new ForkJoinPool(THREADS - 1) : null;
+    private static final ThreadLocal<Worker> LOCAL_WORKERS = new ThreadLocal<>();
+
+    private final int threads;
+    private final int snakeCount;
+    private final Geometry geometry;
+    private final int stride;
+    private final int capacity;
+    private final AtomicIntegerArray firstChild;
+    private final int[] nextSibling;
+    private final int[] actions;
+    private final AtomicIntegerArray nodeVisits;
+    private final AtomicIntegerArray moveVisits;
+    private final AtomicLongArray moveValues;
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder playouts = new LongAdder();
+    private final Position previousRoot;
+
+    private int rootNode = NONE;
+    private boolean reused;
+    private int hpThreshold;
+    private volatile long deadline;
+
+    /**
+     * @param snakeCount at most {@link #MAX_SNAKES}
+     * @param threads    threads growing the tree, at most {@code SEARCH_THREADS}
+     */
+    MonteCarloSearch(final Geometry geometry, final int snakeCount, final int threads) {
+        if (snakeCount > MAX_SNAKES) {
+            throw new IllegalArgumentException("Monte Carlo search takes at most " + MAX_SNAKES + " snakes, not "
+                    + snakeCount);
+        }
+        this.threads = Math.max(1, Math.min(threads, THREADS));
+        this.geometry = geometry;
+        this.snakeCount = snakeCount;
+        stride = snakeCount * 4;
+        capacity = Math.max(16, STAT_SLOTS / stride);
+        firstChild = new AtomicIntegerArray(capacity);
+        nextSibling = new int[capacity];
+        actions = new int[capacity];
+        nodeVisits = new AtomicIntegerArray(capacity);
+        moveVisits = new AtomicIntegerArray(capacity * stride);
+        moveValues = new AtomicLongArray(capacity * stride);
+        previousRoot = new Position(geometry, snakeCount);
+    }
+
+    boolean fits(final Position position) {
+        return position.geometry == geometry && position.snakeCount == snakeCount;
+    }
+
+    /**
+     * Drops the tree, so the next search starts a new one instead of trying to reuse it.
+     */
+    void forget() {
+        rootNode = NONE;
+    }
+
+    /**
+     * Grows the tree from the position until the deadline.
+     *
+     * @param hpThreshold health at which rollouts go for food, as in the evaluator's weights
+     *
+     * @return a score per {@link Move} ordinal in the range of {@link Search} scores, or null if no playout finished
+     */
+    int[] run(final Position root, final long deadline, final int hpThreshold) {
+        this.deadline = deadline;
+        this.hpThreshold = hpThreshold;
+        playouts.reset();
+        reuseOrReset(root);
+        previousRoot.copyFrom(root);
+
+        List<ForkJoinTask<?>> helpers = new ArrayList<>();
+        if (POOL != null) {
+            for (int i = 1; i < threads; i++) {
+                helpers.add(POOL.submit(() -> worker(root).run()));
+            }
+        }
+        worker(root).run();
+        for (ForkJoinTask<?> helper : helpers) {
+            helper.join();
+        }
+        if (nodeVisits.get(rootNode) == 0) {
+            return null;
+        }
+        return rootScores(root);
+    }
+
+    private Worker worker(final Position root) {
+        Worker worker = LOCAL_WORKERS.get();
+        if (worker == null || !worker.fits(root)) {
+            worker = new Worker(root.geometry, root.snakeCount);
+            LOCAL_WORKERS.set(worker);
+        }
+        worker.attach(this, root);
+        return worker;
+    }
+
+    /**
+     * Makes the child reached by the moves actually played since the last search the new root if it can be found,
+     * starts a new tree otherwise.
+     */
+    private void reuseOrReset(final Position root) {
+        reused = false;
+        if (rootNode != NONE && size.get() < capacity / 2 && previousRoot.snakeCount == root.snakeCount) {
+            final int[] targets = new int[snakeCount];
+            for (int child = firstChild.get(rootNode); child != NONE; child = nextSibling[child]) {
+                decode(previousRoot, actions[child], targets);
+                previousRoot.make(targets);
+                final boolean matches = sameSnakes(previousRoot, root);
+                previousRoot.unmake();
+                if (matches) {
+                    rootNode = child;
+                    reused = true;
+                    return;
+                }
+            }
+        }
+        size.set(0);
+        rootNode = allocate();
+    }
+
+    private static boolean sameSnakes(final Position a, final Position b) {
+        for (int snake = 0; snake < a.snakeCount; snake++) {
+            if (a.alive[snake] != b.alive[snake]) {
+                return false;
+            }
+            if (a.alive[snake] && (a.head(snake) != b.head(snake) || a.lengths[snake] != b.lengths[snake])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] rootScores(final Position root) {
+        final int[] scores = new int[4];
+        final int head = root.head(0);
+        final int neck = root.lengths[0] > 1 ? root.segment(0, 1) : Position.NONE;
+        for (Move move : Move.values()) {
+            final int target = Search.neighbor(root, head, move);
+            final int slot = rootNode * stride + move.ordinal();
+            final int visits = moveVisits.get(slot);
+            if (target == Position.NONE || target == neck) {
+                scores[move.ordinal()] = Search.LOSS + Search.TURN_SCORE;
+            } else if (visits > 0) {
+                final double mean = (double) moveValues.get(slot) / VALUE_ONE / visits;
+                scores[move.ordinal()] = (int) Math.round((mean - 0.5) * SCORE_SCALE);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * @return a new node without children or statistics, {@link #NONE} if the arena is full
+     */
+    private int allocate() {
+        final int node = size.getAndIncrement();
+        if (node >= capacity) {
+            return NONE;
+        }
+        nextSibling[node] = NONE;
+        actions[node] = 0;
+        nodeVisits.set(node, 0);
+        for (int slot = node * stride; slot < (node + 1) * stride; slot++) {
+            moveVisits.set(slot, 0);
+            moveValues.set(slot, 0);
+        }
+        firstChild.set(node, NONE);
+        return node;
+    }
+
+    private int findChild(final int node, final int action) {
+        for (int child = firstChild.get(node); child != NONE; child = nextSibling[child]) {
+            if (actions[child] == action) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the child of the node for the joint action, added if missing, or {@link #NONE} if the arena is full
+     */
+    private int findOrAddChild(final int node, final int action) {
+        int created = NONE;
+        while (true) {
+            final int head = firstChild.get(node);
+            for (int child = head; child != NONE; child = nextSibling[child]) {
+                if (actions[child] == action) {
+                    return child;
+                }
+            }
+            if (created == NONE) {
+                created = allocate();
+                if (created == NONE) {
+                    return NONE;
+                }
+                actions[created] = action;
+            }
+            nextSibling[created] = head;
+            if (firstChild.compareAndSet(node, head, created)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Turns a joint action, two bits per snake holding the {@link Move} ordinal, into target cells.
+     */
+    private static void decode(final Position position, final int action, final int[] targets) {
+        assert position.snakeCount <= MAX_SNAKES : position.snakeCount;
+        final Move[] moves = Move.values();
+        for (int snake = 0; snake < position.snakeCount; snake++) {
+            targets[snake] = position.alive[snake]
+                    ? Search.neighbor(position, position.head(snake), moves[(action >>> (2 * snake)) & 3])
+                    : Position.NONE;
+        }
+    }
+
+    long playouts() {
+        return playouts.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "MonteCarloSearch{playouts=" + playouts.sum() + ", nodes=" + Math.min(size.get(), capacity)
+                + ", reused=" + reused + ", threads=" + threads + "}";
+    }
+
+    /**
+     * Per-thread playout state: a private copy of the position, scratch for the leaf evaluation and the path.
+     */
+    private static final class Worker {
+        private final Position position;
+        private final BitBoard board;
+        private final DistanceField field;
+        private final SplittableRandom random = new SplittableRandom();
+        private final int[] pathNodes = new int[Position.MAX_UNDO];
+        private final int[] pathMoves;
+        private final int[] pathMasks = new int[Position.MAX_UNDO];
+        private final int[] targets;
+        private final int[] cells = new int[4];
+        private final double[] rewards;
+        private final int[] sources;
+        private MonteCarloSearch tree;
+        private Position root;
+
+        Worker(final Geometry geometry, final int snakeCount) {
+            position = new Position(geometry, snakeCount);
+            board = new BitBoard(geometry);
+            field = new DistanceField(geometry.cellCount);
+            pathMoves = new int[Position.MAX_UNDO * snakeCount];
+            targets = new int[snakeCount];
+            rewards = new double[snakeCount];
+            sources = new int[snakeCount];
+        }
+
+        boolean fits(final Position other) {
+            return other.geometry == position.geometry && other.snakeCount == position.snakeCount;
+        }
+
+        void attach(final MonteCarloSearch tree, final Position root) {
+            this.tree = tree;
+            this.root = root;
+        }
+
+        void run() {
+            position.copyFrom(root);
+            while (System.nanoTime() - tree.deadline < 0) {
+                playout();
+                tree.playouts.increment();
+            }
+            tree = null;
+            root = null;
+        }
+
+        private void playout() {
+            final MonteCarloSearch tree = this.tree;
+            final int snakeCount = position.snakeCount;
+            int node = tree.rootNode;
+            int ply = 0;
+            boolean terminal = false;
+            while (true) {
+                if (isTerminal()) {
+                    terminal = true;
+                    break;
+                }
+                if (ply >= MAX_TREE_DEPTH || node == NONE) {
+                    break;
+                }
+                assert snakeCount <= MAX_SNAKES : snakeCount;
+                int action = 0;
+                int mask = 0;
+                tree.nodeVisits.incrementAndGet(node);
+                for (int snake = 0; snake < snakeCount; snake++) {
+                    if (!position.alive[snake]) {
+                        continue;
+                    }
+                    final int move = select(tree, node, snake);
+                    tree.moveVisits.incrementAndGet(node * tree.stride + snake * 4 + move);
+                    pathMoves[ply * snakeCount + snake] = move;
+                    mask |= 1 << snake;
+                    action |= move << (2 * snake);
+                }
+                decode(position, action, targets);
+                pathNodes[ply] = node;
+                pathMasks[ply] = mask;
+                position.make(targets);
+                ply++;
+                final int child = tree.findChild(node, action);
+                if (child == NONE) {
+                    tree.findOrAddChild(node, action);
+                    break;
+                }
+                node = child;
+            }
+            int rolloutPlies = 0;
+            if (!terminal) {
+                while (rolloutPlies < ROLLOUT_DEPTH && ply + rolloutPlies < Position.MAX_UNDO && !isTerminal()) {
+                    for (int snake = 0; snake < snakeCount; snake++) {
+                        targets[snake] = position.alive[snake] ? rolloutMove(snake, tree.hpThreshold) : Position.NONE;
+                    }
+                    position.make(targets);
+                    rolloutPlies++;
+                }
+            }
+            reward();
+            for (int i = 0; i < ply + rolloutPlies; i++) {
+                position.unmake();
+            }
+            for (int i = 0; i < ply; i++) {
+                final int base = pathNodes[i] * tree.stride;
+                for (int snake = 0; snake < snakeCount; snake++) {
+                    if ((pathMasks[i] & (1 << snake)) != 0) {
+                        tree.moveValues.addAndGet(base + snake * 4 + pathMoves[i * snakeCount + snake],
+                                (long) (rewards[snake] * VALUE_ONE));
+                    }
+                }
+            }
+        }
+
+        private boolean isTerminal() {
+            if (!position.alive[0]) {
+                return true;
+            }
+            return position.snakeCount > 1 && position.aliveOpponents() == 0;
+        }
+
+        /**
+         * Decoupled UCT: the snake's move with the best upper confidence bound on its own statistics in the node.
+         * Unvisited moves come first, moves into bodies or off the board only if there is nothing else.
+         */
+        private int select(final MonteCarloSearch tree, final int node, final int snake) {
+            final int count = position.safeMoves(snake, cells);
+            if (count == 0) {
+                return forcedMove(snake);
+            }
+            final double logVisits = Math.log(Math.max(1, tree.nodeVisits.get(node)));
+            final int head = position.head(snake);
+            final int base = node * tree.stride + snake * 4;
+            int best = NONE;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                final int move = position.geometry.direction(head, cells[i]);
+                final int visits = tree.moveVisits.get(base + move);
+                final double value = visits == 0
+                        ? Double.MAX_VALUE - random.nextInt(4)
+                        : (double) tree.moveValues.get(base + move) / VALUE_ONE / visits
+                        + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = move;
+                }
+            }
+            return best;
+        }
+
+        private int forcedMove(final int snake) {
+            final int head = position.head(snake);
+            for (Move move : Move.values()) {
+                if (Search.neighbor(position, head, move) != Position.NONE) {
+                    return move.ordinal();
+                }
+            }
+            return Move.LEFT.ordinal();
+        }
+
+        /**
+         * Rollout policy: a safe move that avoids head-to-head fights with snakes at least as long, food if the
+         * snake is low on health, otherwise random with a preference for cells with more free neighbours.
+         */
+        private int rolloutMove(final int snake, final int hpThreshold) {
+            int count = position.safeMoves(snake, cells);
+            if (count == 0) {
+                final int move = forcedMove(snake);
+                return Search.neighbor(position, position.head(snake), Move.values()[move]);
+            }
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (!isLosingDuel(snake, cells[i])) {
+                    cells[kept++] = cells[i];
+                }
+            }
+            if (kept > 0) {
+                count = kept;
+            }
+            if (position.healths[snake] <= hpThreshold) {
+                for (int i = 0; i < count; i++) {
+                    if (BitBoard.get(position.food, cells[i])) {
+                        return cells[i];
+                    }
+                }
+            }
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                total += position.freeNeighbors(cells[i]) + 1;
+            }
+            int pick = random.nextInt(total);
+            for (int i = 0; i < count; i++) {
+                pick -= position.freeNeighbors(cells[i]) + 1;
+                if (pick < 0) {
+                    return cells[i];
+                }
+            }
+            return cells[count - 1];
+        }
+
+        private boolean isLosingDuel(final int snake, final int cell) {
+            for (int other = 0; other < position.snakeCount; other++) {
+                if (other != snake && position.alive[other] && position.lengths[other] >= position.lengths[snake]
+                        && position.distance(position.head(other), cell) == 1) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Rewards in [0, 1] for every snake: 0 when dead, 1 for the last one alive, otherwise a quarter plus half its
+         * share of the reachable territory plus a quarter for being the longest.
+         */
+        private void reward() {
+            final int snakeCount = position.snakeCount;
+            int aliveCount = 0;
+            for (int snake = 0; snake < snakeCount; snake++) {
+                rewards[snake] = 0;
+                if (position.alive[snake]) {
+                    aliveCount++;
+                }
+            }
+            if (aliveCount == 0) {
+                return;
+            }
+            if (aliveCount == 1 && snakeCount > 1) {
+                for (int snake = 0; snake < snakeCount; snake++) {
+                    if (position.alive[snake]) {
+                        rewards[snake] = 1;
+                    }
+                }
+                return;
+            }
+            position.fillOccupationTimes(board);
+            int sourceCount = 0;
+            for (int snake = 0; snake < snakeCount; snake++) {
+                if (position.alive[snake]) {
+                    sources[sourceCount++] = position.head(snake);
+                }
+            }
+            field.compute(board, sources, sourceCount);
+            int reached = 0;
+            for (int i = 0; i < sourceCount; i++) {
+                reached += field.territory(i);
+            }
+            int source = 0;
+            for (int snake = 0; snake < snakeCount; snake++) {
+                if (!position.alive[snake]) {
+                    continue;
+                }
+                int longestOther = 0;
+                for (int other = 0; other < snakeCount; other++) {
+                    if (other != snake && position.alive[other]) {
+                        longestOther = Math.max(longestOther, position.lengths[other]);
+                    }
+                }
+                final int length = position.lengths[snake];
+                final double lengthReward = length > longestOther ? 1 : length == longestOther ? 0.5 : 0;
+                final double territory = reached == 0 ? 0 : (double) field.territory(source) / reached;
+                rewards[snake] = 0.25 + 0.5 * territory + 0.25 * lengthReward;
+                source++;
+            }
+        }
+    }
+}
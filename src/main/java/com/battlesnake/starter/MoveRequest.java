@@ -0,0 +1,378 @@
+package com.battlesnake.starter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Arrays;
+
+/**
+ * Primitive, reusable model of a move request: board cells instead of coordinates and snake ids as character ranges.
+ * <p>
+ * Filled either by the streaming {@link MoveRequestDecoder} or from a parsed {@link JsonNode} tree. While filling,
+ * coordinates are stored packed as {@code x | y << 16} since the board width may only be known afterwards;
+ * {@link #finish()} turns them into cell indices.
+ */
+final class MoveRequest {
+    static final String WRAPPED = "wrapped";
+
+    String gameId = "";
+    int turn;
+    int timeout = GameState.DEFAULT_TIMEOUT;
+    int hazardDamage = GameState.DEFAULT_HAZARD_DAMAGE;
+    int width;
+    int height;
+    boolean wrapped;
+
+    int foodCount;
+    int[] food = new int[16];
+    int hazardCount;
+    int[] hazards = new int[16];
+
+    int snakeCount;
+    int you = -1;
+    int[][] bodies = new int[0][];
+    int[] lengths = new int[0];
+    int[] healths = new int[0];
+    int[] latencies = new int[0];
+
+    private char[] ids = new char[256];
+    private int idsLength;
+    private int[] idStarts = new int[0];
+    private int[] idLengths = new int[0];
+    private int[] nameStarts = new int[0];
+    private int[] nameLengths = new int[0];
+    private char[] youId = new char[64];
+    private int youIdLength;
+
+    void clear() {
+        gameId = "";
+        turn = 0;
+        timeout = GameState.DEFAULT_TIMEOUT;
+        hazardDamage = GameState.DEFAULT_HAZARD_DAMAGE;
+        width = 0;
+        height = 0;
+        wrapped = false;
+        foodCount = 0;
+        hazardCount = 0;
+        snakeCount = 0;
+        you = -1;
+        idsLength = 0;
+        youIdLength = 0;
+    }
+
+    static int pack(final int x, final int y) {
+        return x | y << 16;
+    }
+
+    void addFood(final int x, final int y) {
+        if (foodCount == food.length) {
+            food = Arrays.copyOf(food, foodCount * 2);
+        }
+        food[foodCount++] = pack(x, y);
+    }
+
+    void addHazard(final int x, final int y) {
+        if (hazardCount == hazards.length) {
+            hazards = Arrays.copyOf(hazards, hazardCount * 2);
+        }
+        hazards[hazardCount++] = pack(x, y);
+    }
+
+    /**
+     * @return the index of a new snake without body segments
+     */
+    int addSnake() {
+        if (snakeCount == lengths.length) {
+            final int capacity = Math.max(4, snakeCount * 2);
+            bodies = Arrays.copyOf(bodies, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            healths = Arrays.copyOf(healths, capacity);
+            latencies = Arrays.copyOf(latencies, capacity);
+            idStarts = Arrays.copyOf(idStarts, capacity);
+            idLengths = Arrays.copyOf(idLengths, capacity);
+            nameStarts = Arrays.copyOf(nameStarts, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+        }
+        final int snake = snakeCount++;
+        if (bodies[snake] == null) {
+            bodies[snake] = new int[16];
+        }
+        lengths[snake] = 0;
+        healths[snake] = 0;
+        latencies[snake] = 0;
+        idStarts[snake] = idsLength;
+        idLengths[snake] = 0;
+        nameStarts[snake] = idsLength;
+        nameLengths[snake] = 0;
+        return snake;
+    }
+
+    void addSegment(final int snake, final int x, final int y) {
+        if (lengths[snake] == bodies[snake].length) {
+            bodies[snake] = Arrays.copyOf(bodies[snake], lengths[snake] * 2);
+        }
+        bodies[snake][lengths[snake]++] = pack(x, y);
+    }
+
+    void setSnakeId(final int snake, final char[] chars, final int offset, final int length) {
+        idStarts[snake] = appendChars(chars, offset, length);
+        idLengths[snake] = length;
+    }
+
+    void setSnakeName(final int snake, final char[] chars, final int offset, final int length) {
+        nameStarts[snake] = appendChars(chars, offset, length);
+        nameLengths[snake] = length;
+    }
+
+    /**
+     * Ids and names share one character buffer.
+     *
+     * @return the start of the appended characters
+     */
+    private int appendChars(final char[] chars, final int offset, final int length) {
+        if (idsLength + length > ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(ids.length * 2, idsLength + length));
+        }
+        System.arraycopy(chars, offset, ids, idsLength, length);
+        final int start = idsLength;
+        idsLength += length;
+        return start;
+    }
+
+    void setYouId(final char[] chars, final int offset, final int length) {
+        if (length > youId.length) {
+            youId = new char[length];
+        }
+        System.arraycopy(chars, offset, youId, 0, length);
+        youIdLength = length;
+    }
+
+    String snakeId(final int snake) {
+        return new String(ids, idStarts[snake], idLengths[snake]);
+    }
+
+    /**
+     * @return the name of the snake, empty if unknown
+     */
+    String snakeName(final int snake) {
+        return new String(ids, nameStarts[snake], nameLengths[snake]);
+    }
+
+    int head(final int snake) {
+        return bodies[snake][0];
+    }
+
+    /**
+     * @return whether the snake has a non-empty id equal to the id of {@code otherSnake} in {@code other}
+     */
+    boolean sameId(final int snake, final MoveRequest other, final int otherSnake) {
+        return idLengths[snake] > 0 && Arrays.equals(ids, idStarts[snake], idStarts[snake] + idLengths[snake],
+                other.ids, other.idStarts[otherSnake], other.idStarts[otherSnake] + other.idLengths[otherSnake]);
+    }
+
+    /**
+     * Makes this request a copy of a finished request, reusing its buffers where they are large enough.
+     */
+    void copyFrom(final MoveRequest other) {
+        clear();
+        gameId = other.gameId;
+        turn = other.turn;
+        timeout = other.timeout;
+        hazardDamage = other.hazardDamage;
+        width = other.width;
+        height = other.height;
+        wrapped = other.wrapped;
+        if (food.length < other.foodCount) {
+            food = new int[other.food.length];
+        }
+        System.arraycopy(other.food, 0, food, 0, other.foodCount);
+        foodCount = other.foodCount;
+        if (hazards.length < other.hazardCount) {
+            hazards = new int[other.hazards.length];
+        }
+        System.arraycopy(other.hazards, 0, hazards, 0, other.hazardCount);
+        hazardCount = other.hazardCount;
+        for (int snake = 0; snake < other.snakeCount; snake++) {
+            final int index = addSnake();
+            final int length = other.lengths[snake];
+            if (bodies[index].length < length) {
+                bodies[index] = new int[other.bodies[snake].length];
+            }
+            System.arraycopy(other.bodies[snake], 0, bodies[index], 0, length);
+            lengths[index] = length;
+            healths[index] = other.healths[snake];
+            latencies[index] = other.latencies[snake];
+            setSnakeId(index, other.ids, other.idStarts[snake], other.idLengths[snake]);
+            setSnakeName(index, other.ids, other.nameStarts[snake], other.nameLengths[snake]);
+        }
+        you = other.you;
+    }
+
+    int tail(final int snake) {
+        return bodies[snake][lengths[snake] - 1];
+    }
+
+    /**
+     * Checks the board, converts all packed coordinates into cell indices and finds our own snake.
+     *
+     * @throws IllegalArgumentException if the board is empty, a coordinate lies outside it, a snake has no body or
+     *                                  our own snake is missing
+     */
+    void finish() {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Board of " + width + "x" + height + " cells");
+        }
+        checkOnBoard(food, foodCount, "Food");
+        checkOnBoard(hazards, hazardCount, "Hazard");
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (lengths[snake] == 0) {
+                throw new IllegalArgumentException("Snake " + snake + " has no body");
+            }
+            checkOnBoard(bodies[snake], lengths[snake], "Body segment");
+        }
+        packedToCells();
+        you = -1;
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (you < 0 && Arrays.equals(ids, idStarts[snake], idStarts[snake] + idLengths[snake], youId, 0, youIdLength)) {
+                you = snake;
+            }
+        }
+        if (you < 0) {
+            throw new IllegalArgumentException("Move request does not contain our own snake on the board");
+        }
+    }
+
+    private void checkOnBoard(final int[] packed, final int count, final String what) {
+        for (int i = 0; i < count; i++) {
+            final int x = packed[i] & 0xFFFF;
+            final int y = packed[i] >>> 16;
+            if (x >= width || y >= height) {
+                throw new IllegalArgumentException(what + " at (" + x + ", " + y + ") is off the " + width + "x"
+                        + height + " board");
+            }
+        }
+    }
+
+    private void packedToCells() {
+        toCells(food, foodCount);
+        toCells(hazards, hazardCount);
+        for (int snake = 0; snake < snakeCount; snake++) {
+            toCells(bodies[snake], lengths[snake]);
+        }
+    }
+
+    private void toCells(final int[] packed, final int count) {
+        for (int i = 0; i < count; i++) {
+            packed[i] = (packed[i] >>> 16) * width + (packed[i] & 0xFFFF);
+        }
+    }
+
+    /**
+     * Fills the request with the position as seen by one of its snakes; eliminated snakes are left out.
+     *
+     * @param snakeLatencies the latency to report for every snake of the position in milliseconds
+     */
+    void load(final Position position, final int snake, final int[] snakeLatencies) {
+        clear();
+        width = position.width;
+        height = position.height;
+        wrapped = position.geometry.wrapped;
+        hazardDamage = position.hazardDamage;
+        for (int cell = 0; cell < position.cellCount; cell++) {
+            if (BitBoard.get(position.food, cell)) {
+                addFood(cell % width, cell / width);
+            }
+            if (BitBoard.get(position.hazards, cell)) {
+                addHazard(cell % width, cell / width);
+            }
+        }
+        for (int other = 0; other < position.snakeCount; other++) {
+            if (!position.alive[other]) {
+                continue;
+            }
+            final int index = addSnake();
+            for (int i = 0; i < position.lengths[other]; i++) {
+                final int cell = position.segment(other, i);
+                addSegment(index, cell % width, cell / width);
+            }
+            healths[index] = position.healths[other];
+            latencies[index] = snakeLatencies[other];
+            final char[] id = {(char) ('a' + other)};
+            setSnakeId(index, id, 0, id.length);
+            if (other == snake) {
+                you = index;
+            }
+        }
+        packedToCells();
+    }
+
+    /**
+     * Fills the request with a position of the batch, seen by its first snake; snake ids and names are left empty.
+     */
+    void load(final PositionBatch batch, final int index) {
+        clear();
+        width = batch.geometry.width;
+        height = batch.geometry.height;
+        wrapped = batch.geometry.wrapped;
+        turn = batch.turns[index];
+        hazardDamage = batch.hazardDamages[index];
+        foodCount = batch.foodStarts[index + 1] - batch.foodStarts[index];
+        if (food.length < foodCount) {
+            food = new int[foodCount];
+        }
+        System.arraycopy(batch.food, batch.foodStarts[index], food, 0, foodCount);
+        hazardCount = batch.hazardStarts[index + 1] - batch.hazardStarts[index];
+        if (hazards.length < hazardCount) {
+            hazards = new int[hazardCount];
+        }
+        System.arraycopy(batch.hazards, batch.hazardStarts[index], hazards, 0, hazardCount);
+        for (int slot = batch.snakeStarts[index]; slot < batch.snakeStarts[index + 1]; slot++) {
+            final int snake = addSnake();
+            final int length = batch.lengths[slot];
+            if (bodies[snake].length < length) {
+                bodies[snake] = new int[length];
+            }
+            System.arraycopy(batch.segments, batch.bodyStarts[slot], bodies[snake], 0, length);
+            lengths[snake] = length;
+            healths[snake] = batch.healths[slot];
+        }
+        you = 0;
+    }
+
+    /**
+     * Fills the request from a parsed JSON tree.
+     */
+    void load(final JsonNode moveRequest) {
+        clear();
+        final JsonNode game = moveRequest.path("game");
+        gameId = game.path("id").asText("");
+        timeout = game.path("timeout").asInt(GameState.DEFAULT_TIMEOUT);
+        wrapped = WRAPPED.equals(game.path("ruleset").path("name").asText());
+        hazardDamage = game.path("ruleset").path("settings").path("hazardDamagePerTurn").asInt(GameState.DEFAULT_HAZARD_DAMAGE);
+        turn = moveRequest.path("turn").asInt();
+
+        final Board board = new Board(moveRequest.get("board"));
+        width = board.width;
+        height = board.height;
+        for (Coord coord : board.food) {
+            addFood(coord.x, coord.y);
+        }
+        for (Coord coord : board.hazards) {
+            addHazard(coord.x, coord.y);
+        }
+        for (BattleSnake battleSnake : board.snakes) {
+            final int snake = addSnake();
+            for (Coord coord : battleSnake.body) {
+                addSegment(snake, coord.x, coord.y);
+            }
+            healths[snake] = battleSnake.health;
+            latencies[snake] = battleSnake.latencyMillis();
+            final char[] id = battleSnake.id.toCharArray();
+            setSnakeId(snake, id, 0, id.length);
+            final char[] name = battleSnake.name.toCharArray();
+            setSnakeName(snake, name, 0, name.length);
+        }
+        final char[] id = moveRequest.get("you").get("id").asText().toCharArray();
+        setYouId(id, 0, id.length);
+        finish();
+    }
+}
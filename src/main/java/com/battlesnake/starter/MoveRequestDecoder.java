@@ -0,0 +1,257 @@
+package com.battlesnake.starter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Streaming decoder reading move request bytes straight into a {@link MoveRequest}.
+ * <p>
+ * No {@link com.fasterxml.jackson.databind.JsonNode} tree is built; field names are the parser's canonical strings and
+ * snake ids are copied as characters, so the only object allocated per request besides the parser is the game id.
+ * Unknown fields are skipped.
+ */
+final class MoveRequestDecoder {
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final ThreadLocal<MoveRequest> REQUESTS = ThreadLocal.withInitial(MoveRequest::new);
+
+    private MoveRequestDecoder() {
+    }
+
+    /**
+     * Decodes into the current thread's reusable request, which stays valid until the thread decodes the next one.
+     */
+    static MoveRequest decode(final byte[] body) throws IOException {
+        final MoveRequest request = REQUESTS.get();
+        decode(body, request);
+        return request;
+    }
+
+    static void decode(final byte[] body, final MoveRequest request) throws IOException {
+        decode(body, body.length, request);
+    }
+
+    /**
+     * Decodes the first {@code length} bytes of a buffer that may be larger than the request.
+     *
+     * @throws IOException if the body is not a move request, a coordinate is off the board, a snake has no body or
+     *                     our own snake is not on the board
+     */
+    static void decode(final byte[] body, final int length, final MoveRequest request) throws IOException {
+        request.clear();
+        try (JsonParser parser = FACTORY.createParser(body, 0, length)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "game":
+                        readGame(parser, request);
+                        break;
+                    case "turn":
+                        request.turn = parser.getValueAsInt();
+                        break;
+                    case "board":
+                        readBoard(parser, request);
+                        break;
+                    case "you":
+                        readYou(parser, request);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        try {
+            request.finish();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static void expect(final JsonToken token, final JsonToken expected) throws IOException {
+        if (token != expected) {
+            throw new IOException("Expected " + expected + " but found " + token);
+        }
+    }
+
+    private static void readGame(final JsonParser parser, final MoveRequest request) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "id":
+                    request.gameId = parser.getValueAsString("");
+                    break;
+                case "timeout":
+                    request.timeout = parser.getValueAsInt(GameState.DEFAULT_TIMEOUT);
+                    break;
+                case "ruleset":
+                    readRuleset(parser, request);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readRuleset(final JsonParser parser, final MoveRequest request) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            if ("name".equals(name) && parser.currentToken() == JsonToken.VALUE_STRING) {
+                request.wrapped = MoveRequest.WRAPPED.equals(parser.getValueAsString());
+            } else if ("settings".equals(name) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String setting = parser.currentName();
+                    parser.nextToken();
+                    if ("hazardDamagePerTurn".equals(setting)) {
+                        request.hazardDamage = parser.getValueAsInt(GameState.DEFAULT_HAZARD_DAMAGE);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readBoard(final JsonParser parser, final MoveRequest request) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            switch (name) {
+                case "width":
+                    request.width = parser.getValueAsInt();
+                    break;
+                case "height":
+                    request.height = parser.getValueAsInt();
+                    break;
+                case "food":
+                case "hazards":
+                    expect(token, JsonToken.START_ARRAY);
+                    final boolean food = "food".equals(name);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        final int packed = readCoord(parser);
+                        if (food) {
+                            request.addFood(packed & 0xFFFF, packed >>> 16);
+                        } else {
+                            request.addHazard(packed & 0xFFFF, packed >>> 16);
+                        }
+                    }
+                    break;
+                case "snakes":
+                    expect(token, JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readSnake(parser, request);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readSnake(final JsonParser parser, final MoveRequest request) throws IOException {
+        final int snake = request.addSnake();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken token = parser.nextToken();
+            switch (name) {
+                case "id":
+                    request.setSnakeId(snake, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    break;
+                case "name":
+                    request.setSnakeName(snake, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    break;
+                case "health":
+                    request.healths[snake] = parser.getValueAsInt();
+                    break;
+                case "latency":
+                    request.latencies[snake] = readInt(parser, token);
+                    break;
+                case "body":
+                    expect(token, JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        final int packed = readCoord(parser);
+                        request.addSegment(snake, packed & 0xFFFF, packed >>> 16);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readYou(final JsonParser parser, final MoveRequest request) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            if ("id".equals(name)) {
+                request.setYouId(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * @return the coordinate packed as {@code x | y << 16}
+     * @throws IOException if a component does not fit into 16 bits; whether it is on the board is checked once the
+     *                     board size is known
+     */
+    private static int readCoord(final JsonParser parser) throws IOException {
+        int x = 0;
+        int y = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            if ("x".equals(name)) {
+                x = parser.getValueAsInt();
+            } else if ("y".equals(name)) {
+                y = parser.getValueAsInt();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (x < 0 || y < 0 || x > 0xFFFF || y > 0xFFFF) {
+            throw new IOException("Coordinate (" + x + ", " + y + ") is off the board");
+        }
+        return MoveRequest.pack(x, y);
+    }
+
+    /**
+     * Reads a number that may also be sent as a string, like the snake latency. Returns 0 if it is not numeric.
+     */
+    private static int readInt(final JsonParser parser, final JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return 0;
+        }
+        final char[] chars = parser.getTextCharacters();
+        final int offset = parser.getTextOffset();
+        final int length = parser.getTextLength();
+        if (length == 0 || length > 9) {
+            return 0;
+        }
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final char c = chars[i];
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,288 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Learns how the opponents of a game move and predicts the probabilities of their next moves.
+ * <p>
+ * Every possible move of an opponent falls into one of {@link #FEATURES} classes by four local features: whether it
+ * goes straight on or turns, whether it gets closer to the nearest food, whether the target cell is on the edge and
+ * how many free neighbours the target cell has. For every class the model counts how often a move of that class
+ * was possible and how often it was taken; the probability of a move is its class's rate of being taken,
+ * normalised over the possible moves. Forced moves are not counted, they tell nothing.
+ * <p>
+ * Counts are kept per snake id for the running game and per snake name across games and sessions, so a known
+ * opponent is predicted from the first turn on; the game's own counts weigh {@link #GAME_WEIGHT} times as much.
+ * With fewer than {@link #MIN_OBSERVATIONS} observations all moves are equally likely. The counts by name are shared
+ * by all sessions and keep the {@link #MAX_NAMES} most recently used names. Models of self-play keep only the counts
+ * of the running game, so games and evaluators tuned against each other stay independent.
+ */
+final class OpponentModel {
+    static final int MIN_OBSERVATIONS = 8;
+    static final int GAME_WEIGHT = 4;
+    static final int MAX_NAMES = 1024;
+    /**
+     * Lower bound of {@link #likelihood(int)}, so an unlikely move into a lost duel still counts.
+     */
+    static final double MIN_LIKELIHOOD = 0.25;
+
+    private static final int STRAIGHT = 0;
+    private static final int TURN = 1;
+    private static final int NO_HEADING = 2;
+    private static final int FEATURES = 3 * 2 * 2 * 4;
+    private static final Map<String, Counts> BY_NAME = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Counts> eldest) {
+                    return size() > MAX_NAMES;
+                }
+            });
+
+    private final boolean sharesNames;
+    private final Map<String, Counts> byId = new HashMap<>();
+    private String gameId = "";
+    private long[] occupied = new long[0];
+    private final int[] cells = new int[4];
+    private final int[] features = new int[4];
+    private final double[] probabilities = new double[4];
+    private int candidateCount;
+    private double maxProbability;
+
+    /**
+     * @param sharesNames whether to learn and predict from the counts by name shared across games
+     */
+    OpponentModel(final boolean sharesNames) {
+        this.sharesNames = sharesNames;
+    }
+
+    /**
+     * Move statistics of one snake.
+     */
+    static final class Counts {
+        private final AtomicIntegerArray offered = new AtomicIntegerArray(FEATURES);
+        private final AtomicIntegerArray taken = new AtomicIntegerArray(FEATURES);
+        private final AtomicInteger observations = new AtomicInteger();
+
+        void add(final int[] features, final int count, final int chosen) {
+            for (int i = 0; i < count; i++) {
+                offered.incrementAndGet(features[i]);
+            }
+            taken.incrementAndGet(features[chosen]);
+            observations.incrementAndGet();
+        }
+
+        int observations() {
+            return observations.get();
+        }
+    }
+
+    /**
+     * Counts the moves every opponent made from the previous turn to the current one.
+     *
+     * @param previous the previous turn of the game or null if the current request does not follow it
+     */
+    void observe(final MoveRequest previous, final MoveRequest current) {
+        if (!current.gameId.equals(gameId)) {
+            byId.clear();
+            gameId = current.gameId;
+        }
+        if (previous == null) {
+            return;
+        }
+        final Geometry geometry = Geometry.of(previous.width, previous.height, previous.wrapped);
+        markOccupied(previous, geometry);
+        for (int snake = 0; snake < current.snakeCount; snake++) {
+            if (snake == current.you) {
+                continue;
+            }
+            int before = -1;
+            for (int candidate = 0; candidate < previous.snakeCount; candidate++) {
+                if (current.sameId(snake, previous, candidate)) {
+                    before = candidate;
+                    break;
+                }
+            }
+            if (before < 0) {
+                continue;
+            }
+            final int count = candidates(previous, geometry, before);
+            final int chosen = indexOf(current.head(snake), count);
+            if (count < 2 || chosen < 0) {
+                continue;
+            }
+            byId.computeIfAbsent(current.snakeId(snake), id -> new Counts()).add(features, count, chosen);
+            final Counts named = sharesNames ? named(current.snakeName(snake)) : null;
+            if (named != null) {
+                named.add(features, count, chosen);
+            }
+        }
+    }
+
+    /**
+     * @return the counts of the name, added in place of the least recently used name if the map is full; null for
+     * an empty name
+     */
+    static Counts named(final String name) {
+        if (name.isEmpty()) {
+            return null;
+        }
+        return BY_NAME.computeIfAbsent(name, key -> new Counts());
+    }
+
+    /**
+     * Forgets the counts of all names, e.g. of the snakes replayed while warming up.
+     */
+    static void clearNames() {
+        BY_NAME.clear();
+    }
+
+    /**
+     * Predicts the next move of the snake; query the result with {@link #probability(int)} and
+     * {@link #likelihood(int)}.
+     *
+     * @return the number of cells the snake can move to
+     */
+    int predict(final MoveRequest request, final Geometry geometry, final int snake) {
+        markOccupied(request, geometry);
+        candidateCount = candidates(request, geometry, snake);
+        final Counts game = byId.get(request.snakeId(snake));
+        final Counts named = sharesNames ? BY_NAME.get(request.snakeName(snake)) : null;
+        final int observations = (game == null ? 0 : game.observations()) + (named == null ? 0 : named.observations());
+        double sum = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            probabilities[i] = observations < MIN_OBSERVATIONS ? 1 : rate(game, named, features[i]);
+            sum += probabilities[i];
+        }
+        maxProbability = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            probabilities[i] /= sum;
+            maxProbability = Math.max(maxProbability, probabilities[i]);
+        }
+        return candidateCount;
+    }
+
+    private static double rate(final Counts game, final Counts named, final int feature) {
+        double taken = 1;
+        double offered = 2;
+        if (game != null) {
+            taken += GAME_WEIGHT * game.taken.get(feature);
+            offered += GAME_WEIGHT * game.offered.get(feature);
+        }
+        if (named != null) {
+            taken += named.taken.get(feature);
+            offered += named.offered.get(feature);
+        }
+        return taken / offered;
+    }
+
+    /**
+     * @return the predicted probability of the snake moving to the cell, 0 if it cannot move there
+     */
+    double probability(final int cell) {
+        final int index = indexOf(cell, candidateCount);
+        return index < 0 ? 0 : probabilities[index];
+    }
+
+    /**
+     * @return the probability of the move to the cell relative to the most likely move, at least
+     * {@link #MIN_LIKELIHOOD}; 1 for cells the model did not consider
+     */
+    double likelihood(final int cell) {
+        final int index = indexOf(cell, candidateCount);
+        if (index < 0 || maxProbability == 0) {
+            return 1;
+        }
+        return Math.max(MIN_LIKELIHOOD, probabilities[index] / maxProbability);
+    }
+
+    private int indexOf(final int cell, final int count) {
+        for (int i = 0; i < count; i++) {
+            if (cells[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Marks every body segment that is still there next turn, i.e. all but tails that move on.
+     */
+    private void markOccupied(final MoveRequest request, final Geometry geometry) {
+        final int words = (geometry.cellCount + 63) >>> 6;
+        if (occupied.length < words) {
+            occupied = new long[words];
+        } else {
+            Arrays.fill(occupied, 0, words, 0);
+        }
+        for (int snake = 0; snake < request.snakeCount; snake++) {
+            final int[] body = request.bodies[snake];
+            final int length = request.lengths[snake];
+            final boolean tailStays = length > 1 && body[length - 1] == body[length - 2];
+            for (int i = 0; i < (tailStays ? length : length - 1); i++) {
+                BitBoard.set(occupied, body[i]);
+            }
+        }
+    }
+
+    /**
+     * Writes the cells the snake can move to into {@link #cells} and their classes into {@link #features}.
+     *
+     * @return the number of cells
+     */
+    private int candidates(final MoveRequest request, final Geometry geometry, final int snake) {
+        final int length = request.lengths[snake];
+        if (length == 0) {
+            return 0;
+        }
+        final int head = request.head(snake);
+        final int neck = length > 1 ? request.bodies[snake][1] : head;
+        final int heading = neck != head ? geometry.direction(neck, head) : -1;
+        final int foodDistance = nearestFood(request, geometry, head);
+        int count = 0;
+        for (int move = 0; move < 4; move++) {
+            final int cell = geometry.neighbor(head, move);
+            if (cell == Geometry.NONE || BitBoard.get(occupied, cell)) {
+                continue;
+            }
+            final int turn;
+            if (heading < 0) {
+                turn = NO_HEADING;
+            } else if (move == heading) {
+                turn = STRAIGHT;
+            } else {
+                turn = TURN;
+            }
+            final int towardsFood = nearestFood(request, geometry, cell) < foodDistance ? 1 : 0;
+            final int edge = geometry.isEdge(cell) ? 1 : 0;
+            cells[count] = cell;
+            features[count] = ((turn * 2 + towardsFood) * 2 + edge) * 4 + Math.min(3, freeNeighbors(geometry, cell));
+            count++;
+        }
+        return count;
+    }
+
+    private int freeNeighbors(final Geometry geometry, final int cell) {
+        final int degree = geometry.degrees[cell];
+        int free = 0;
+        for (int i = 0; i < degree; i++) {
+            if (!BitBoard.get(occupied, geometry.adjacent[cell * 4 + i])) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    private static int nearestFood(final MoveRequest request, final Geometry geometry, final int cell) {
+        int nearest = Integer.MAX_VALUE;
+        for (int i = 0; i < request.foodCount; i++) {
+            nearest = Math.min(nearest, geometry.distance(cell, request.food[i]));
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,175 @@
+package com.battlesnake.starter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the {@link Search} lookahead for all candidate moves in parallel.
+ * <p>
+ * Every pair of our move and an opponent joint reply at the root becomes its own fork-join task, searched with the
+ * {@link Search} instance of the worker thread; the instances belong to the shared pool's threads, not to a game.
+ * Siblings share the best reply found so far for their move as beta bound. Iterative deepening is synchronised: a
+ * depth only counts once all of its tasks finished in time, and tasks starting after the deadline give up
+ * immediately.
+ */
+final class ParallelSearch {
+    static final int THREADS = Integer.getInteger("SEARCH_THREADS", Runtime.getRuntime().availableProcessors());
+
+    private static final ForkJoinPool POOL = THREADS > 1 ? new ForkJoinPool(THREADS) : null;
+    private static final ThreadLocal<Search> SEARCHES = new ThreadLocal<>();
+
+    private final ForkJoinPool pool;
+    private final LongAdder nodes = new LongAdder();
+    private int completedDepth;
+
+    ParallelSearch(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return a parallel search on the shared pool or null if only one search thread is configured
+     */
+    static ParallelSearch create() {
+        return POOL == null ? null : new ParallelSearch(POOL);
+    }
+
+    int completedDepth() {
+        return completedDepth;
+    }
+
+    long nodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Same contract as {@link Search#run(Position, long, TranspositionTable, int)}.
+     */
+    int[] run(final Position root, final long deadline, final TranspositionTable table, final int maxDepth) {
+        nodes.reset();
+        completedDepth = 0;
+        final boolean hadOpponents = root.aliveOpponents() > 0;
+
+        int[] best = null;
+        for (int depth = 1; depth <= Math.min(maxDepth, Search.MAX_DEPTH); depth++) {
+            final int[] scores = new int[4];
+            final List<ReplyTask> tasks = createTasks(root, depth, deadline, hadOpponents, table, scores);
+            final AtomicIntegerArray betas = tasks.isEmpty() ? null : tasks.get(0).betas;
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+            boolean complete = true;
+            for (ReplyTask task : tasks) {
+                if (task.score == Search.NOT_SEARCHED) {
+                    complete = false;
+                    break;
+                }
+            }
+            if (!complete) {
+                break;
+            }
+            for (ReplyTask task : tasks) {
+                scores[task.move] = betas.get(task.move);
+            }
+            best = scores;
+            completedDepth = depth;
+            if (Search.isDecided(best) || System.nanoTime() - deadline >= 0) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private List<ReplyTask> createTasks(final Position root, final int depth, final long deadline,
+                                        final boolean hadOpponents, final TranspositionTable table,
+                                        final int[] scores) {
+        final int snakeCount = root.snakeCount;
+        final int[][] options = new int[snakeCount][4];
+        final int[] counts = new int[snakeCount];
+        final int[] indices = new int[snakeCount];
+        Search.collectReplies(root, depth, options, counts);
+
+        final AtomicIntegerArray betas = new AtomicIntegerArray(4);
+        final List<ReplyTask> tasks = new ArrayList<>();
+        final int head = root.head(0);
+        final int neck = root.lengths[0] > 1 ? root.segment(0, 1) : Position.NONE;
+        for (Move move : Move.values()) {
+            final int target = Search.neighbor(root, head, move);
+            if (target == Position.NONE || target == neck) {
+                scores[move.ordinal()] = Search.LOSS + Search.TURN_SCORE;
+                continue;
+            }
+            betas.set(move.ordinal(), Integer.MAX_VALUE);
+            Arrays.fill(indices, 0);
+            do {
+                final int[] jointTargets = new int[snakeCount];
+                jointTargets[0] = target;
+                for (int snake = 1; snake < snakeCount; snake++) {
+                    jointTargets[snake] = options[snake][indices[snake]];
+                }
+                tasks.add(new ReplyTask(root, move.ordinal(), jointTargets, depth, deadline, hadOpponents, table, betas));
+            } while (Search.nextReply(indices, counts));
+        }
+        return tasks;
+    }
+
+    private static Search getSearch(final Position root) {
+        Search search = SEARCHES.get();
+        if (search == null || !search.fits(root)) {
+            search = new Search(root.geometry, root.snakeCount);
+            SEARCHES.set(search);
+        }
+        return search;
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelSearch{depth=" + completedDepth + ", nodes=" + nodes.sum() + ", threads=" + pool.getParallelism() + "}";
+    }
+
+    @SuppressWarnings("serial")
+    private final class ReplyTask extends RecursiveAction {
+        final Position root;
+        final int move;
+        final int[] jointTargets;
+        final int depth;
+        final long deadline;
+        final boolean hadOpponents;
+        final TranspositionTable table;
+        final AtomicIntegerArray betas;
+        int score = Search.NOT_SEARCHED;
+
+        ReplyTask(final Position root, final int move, final int[] jointTargets, final int depth, final long deadline,
+                  final boolean hadOpponents, final TranspositionTable table, final AtomicIntegerArray betas) {
+            this.root = root;
+            this.move = move;
+            this.jointTargets = jointTargets;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.hadOpponents = hadOpponents;
+            this.table = table;
+            this.betas = betas;
+        }
+
+        @Override
+        protected void compute() {
+            if (System.nanoTime() - deadline >= 0) {
+                return;
+            }
+            final Search search = getSearch(root);
+            final long startNodes = search.nodes();
+            score = search.searchReply(root, jointTargets, depth, betas.get(move), deadline, hadOpponents, table);
+            nodes.add(search.nodes() - startNodes);
+            if (score != Search.NOT_SEARCHED) {
+                betas.accumulateAndGet(move, score, Math::min);
+            }
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Compact, mutable game position used for lookahead. Snake 0 is always our own snake.
+ * <p>
+ * Bodies are ring buffers of cell indices with the head at {@code heads[snake]}; the occupancy array counts
+ * the body segments on every cell, so stacked segments at game start and after eating are handled.
+ */
+final class Position {
+    static final int NONE = BitBoard.NONE;
+    static final int MAX_HEALTH = 100;
+    static final int MAX_UNDO = 64;
+
+    private static final int MOVED = 1;
+    private static final int ATE = 2;
+    private static final int FOOD_CLEARED = 4;
+    private static final int ELIMINATED = 8;
+
+    final Geometry geometry;
+    final int width;
+    final int height;
+    final int cellCount;
+    final int snakeCount;
+    final int mask;
+    final int[][] bodies;
+    final int[] heads;
+    final int[] lengths;
+    final int[] healths;
+    final boolean[] alive;
+    final long[] food;
+    final long[] hazards;
+    final int[] occupancy;
+    final Zobrist zobrist;
+    int hazardDamage;
+    long key;
+
+    private final boolean[] dying;
+    private final long[] undoKeys;
+    private final int[] undoHeads;
+    private final int[] undoLengths;
+    private final int[] undoHealths;
+    private final int[] undoTails;
+    private final int[] undoFlags;
+    private int undoDepth;
+
+    Position(final int width, final int height, final int snakeCount) {
+        this(Geometry.of(width, height, false), snakeCount);
+    }
+
+    Position(final Geometry geometry, final int snakeCount) {
+        this.geometry = geometry;
+        this.width = geometry.width;
+        this.height = geometry.height;
+        this.cellCount = geometry.cellCount;
+        this.snakeCount = snakeCount;
+        final int capacity = Integer.highestOneBit(cellCount + 2) << 1;
+        mask = capacity - 1;
+        bodies = new int[snakeCount][capacity];
+        heads = new int[snakeCount];
+        lengths = new int[snakeCount];
+        healths = new int[snakeCount];
+        alive = new boolean[snakeCount];
+        final int words = (cellCount + 63) >>> 6;
+        food = new long[words];
+        hazards = new long[words];
+        occupancy = new int[cellCount];
+        dying = new boolean[snakeCount];
+        undoKeys = new long[MAX_UNDO];
+        undoHeads = new int[MAX_UNDO * snakeCount];
+        undoLengths = new int[MAX_UNDO * snakeCount];
+        undoHealths = new int[MAX_UNDO * snakeCount];
+        undoTails = new int[MAX_UNDO * snakeCount];
+        undoFlags = new int[MAX_UNDO * snakeCount];
+        zobrist = Zobrist.of(cellCount, snakeCount);
+        key = computeKey();
+    }
+
+    static Position of(final GameState gameState) {
+        return of(gameState, null);
+    }
+
+    /**
+     * Loads the game state into {@code reuse} if it has the right dimensions, into a new position otherwise.
+     */
+    static Position of(final GameState gameState, final Position reuse) {
+        final MoveRequest request = gameState.request;
+        final int count = request.snakeCount;
+        final BitBoard bitBoard = gameState.bitBoard;
+        final Position position = reuse != null && reuse.geometry == bitBoard.geometry && reuse.snakeCount == count
+                ? reuse : new Position(bitBoard.geometry, count);
+        position.hazardDamage = gameState.hazardDamage;
+        position.undoDepth = 0;
+        Arrays.fill(position.occupancy, 0);
+        System.arraycopy(bitBoard.food, 0, position.food, 0, position.food.length);
+        System.arraycopy(bitBoard.hazards, 0, position.hazards, 0, position.hazards.length);
+        position.setSnake(0, request, gameState.you);
+        int index = 1;
+        for (int snake = 0; snake < count; snake++) {
+            if (snake != gameState.you) {
+                position.setSnake(index++, request, snake);
+            }
+        }
+        position.key = position.computeKey();
+        return position;
+    }
+
+    /**
+     * Turns the position loaded from {@code previous} into the one of {@code request} by replacing the snakes, food
+     * and hazards of the previous turn instead of clearing the whole board. Both requests must hold the same snakes
+     * in the same order.
+     */
+    void update(final MoveRequest previous, final MoveRequest request) {
+        setHazardDamage(request.hazardDamage);
+        undoDepth = 0;
+        for (int i = 0; i < previous.foodCount; i++) {
+            final int cell = previous.food[i];
+            if (BitBoard.get(food, cell)) {
+                BitBoard.clear(food, cell);
+                key ^= zobrist.food(cell);
+            }
+        }
+        for (int i = 0; i < request.foodCount; i++) {
+            addFood(request.food[i]);
+        }
+        for (int i = 0; i < previous.hazardCount; i++) {
+            final int cell = previous.hazards[i];
+            if (BitBoard.get(hazards, cell)) {
+                BitBoard.clear(hazards, cell);
+                key ^= zobrist.hazard(cell);
+            }
+        }
+        for (int i = 0; i < request.hazardCount; i++) {
+            addHazard(request.hazards[i]);
+        }
+        int index = 1;
+        for (int requestSnake = 0; requestSnake < request.snakeCount; requestSnake++) {
+            final int snake = requestSnake == request.you ? 0 : index++;
+            key ^= snakeKey(snake);
+            for (int i = 0; i < lengths[snake]; i++) {
+                occupancy[segment(snake, i)]--;
+            }
+            setSnake(snake, request, requestSnake);
+            key ^= snakeKey(snake);
+        }
+    }
+
+    private void setSnake(final int snake, final MoveRequest request, final int requestSnake) {
+        final int length = request.lengths[requestSnake];
+        heads[snake] = 0;
+        lengths[snake] = length;
+        healths[snake] = request.healths[requestSnake];
+        alive[snake] = length > 0;
+        System.arraycopy(request.bodies[requestSnake], 0, bodies[snake], 0, length);
+        for (int i = 0; i < length; i++) {
+            occupancy[request.bodies[requestSnake][i]]++;
+        }
+    }
+
+    /**
+     * Places a snake with all segments stacked on one cell and full health, as at the start of a game.
+     */
+    void placeSnake(final int snake, final int cell, final int length) {
+        heads[snake] = 0;
+        lengths[snake] = length;
+        healths[snake] = MAX_HEALTH;
+        alive[snake] = true;
+        for (int i = 0; i < length; i++) {
+            bodies[snake][i] = cell;
+            occupancy[cell]++;
+        }
+        key = computeKey();
+    }
+
+    void addFood(final int cell) {
+        if (!BitBoard.get(food, cell)) {
+            BitBoard.set(food, cell);
+            key ^= zobrist.food(cell);
+        }
+    }
+
+    void addHazard(final int cell) {
+        if (!BitBoard.get(hazards, cell)) {
+            BitBoard.set(hazards, cell);
+            key ^= zobrist.hazard(cell);
+        }
+    }
+
+    void setHazardDamage(final int damage) {
+        key ^= zobrist.hazardDamage(hazardDamage) ^ zobrist.hazardDamage(damage);
+        hazardDamage = damage;
+    }
+
+    /**
+     * @return the Zobrist key of the position computed from scratch
+     */
+    long computeKey() {
+        long result = zobrist.hazardDamage(hazardDamage);
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (BitBoard.get(food, cell)) {
+                result ^= zobrist.food(cell);
+            }
+            if (BitBoard.get(hazards, cell)) {
+                result ^= zobrist.hazard(cell);
+            }
+        }
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (alive[snake]) {
+                result ^= snakeKey(snake);
+            }
+        }
+        return result;
+    }
+
+    private long snakeKey(final int snake) {
+        long result = zobrist.head(snake, head(snake)) ^ zobrist.length(snake, lengths[snake]) ^ zobrist.health(snake, healths[snake]);
+        for (int i = 0; i < lengths[snake]; i++) {
+            result ^= zobrist.body(snake, segment(snake, i));
+        }
+        return result;
+    }
+
+    void copyFrom(final Position other) {
+        hazardDamage = other.hazardDamage;
+        key = other.key;
+        undoDepth = 0;
+        for (int snake = 0; snake < snakeCount; snake++) {
+            heads[snake] = other.heads[snake];
+            lengths[snake] = other.lengths[snake];
+            healths[snake] = other.healths[snake];
+            alive[snake] = other.alive[snake];
+            if (alive[snake]) {
+                final int[] body = bodies[snake];
+                final int[] otherBody = other.bodies[snake];
+                for (int i = 0; i < lengths[snake]; i++) {
+                    final int index = (heads[snake] + i) & mask;
+                    body[index] = otherBody[index];
+                }
+            }
+        }
+        System.arraycopy(other.food, 0, food, 0, food.length);
+        System.arraycopy(other.hazards, 0, hazards, 0, hazards.length);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, cellCount);
+    }
+
+    int head(final int snake) {
+        return bodies[snake][heads[snake]];
+    }
+
+    int segment(final int snake, final int index) {
+        return bodies[snake][(heads[snake] + index) & mask];
+    }
+
+    int tail(final int snake) {
+        return segment(snake, lengths[snake] - 1);
+    }
+
+    int aliveOpponents() {
+        int count = 0;
+        for (int snake = 1; snake < snakeCount; snake++) {
+            if (alive[snake]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int distance(final int a, final int b) {
+        return geometry.distance(a, b);
+    }
+
+    /**
+     * A cell is safe to enter if it is empty or holds only a tail that will move away this turn.
+     */
+    boolean isSafe(final int cell) {
+        final int count = occupancy[cell];
+        if (count == 0) {
+            return true;
+        }
+        if (count > 1) {
+            return false;
+        }
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (alive[snake] && lengths[snake] > 1 && tail(snake) == cell) {
+                return segment(snake, lengths[snake] - 2) != cell;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the in-board cells the snake can move to without immediately running into a body.
+     *
+     * @return the number of cells written into {@code out}
+     */
+    int safeMoves(final int snake, final int[] out) {
+        final int head = head(snake);
+        final int[] adjacent = geometry.adjacent;
+        final int base = head * 4;
+        final int degree = geometry.degrees[head];
+        int count = 0;
+        for (int i = 0; i < degree; i++) {
+            final int neighbor = adjacent[base + i];
+            if (isSafe(neighbor)) {
+                out[count++] = neighbor;
+            }
+        }
+        return count;
+    }
+
+    int freeNeighbors(final int cell) {
+        final int[] adjacent = geometry.adjacent;
+        final int base = cell * 4;
+        final int degree = geometry.degrees[cell];
+        int count = 0;
+        for (int i = 0; i < degree; i++) {
+            if (occupancy[adjacent[base + i]] == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Advances the position by one turn following the standard rules, without the possibility to undo it.
+     *
+     * @param targets the cell every snake moves to, {@link #NONE} for a move off the board; ignored for dead snakes
+     */
+    void apply(final int[] targets) {
+        make(targets);
+        undoDepth--;
+    }
+
+    /**
+     * Advances the position by one turn following the standard rules and remembers how to {@link #unmake()} it.
+     * At most {@link #MAX_UNDO} turns can be pending.
+     *
+     * @param targets the cell every snake moves to, {@link #NONE} for a move off the board; ignored for dead snakes
+     */
+    void make(final int[] targets) {
+        final int frame = undoDepth++;
+        final int base = frame * snakeCount;
+        undoKeys[frame] = key;
+
+        for (int snake = 0; snake < snakeCount; snake++) {
+            undoHeads[base + snake] = heads[snake];
+            undoLengths[base + snake] = lengths[snake];
+            undoHealths[base + snake] = healths[snake];
+            undoFlags[base + snake] = 0;
+            dying[snake] = false;
+            if (!alive[snake]) {
+                continue;
+            }
+            final int target = targets[snake];
+            if (target == NONE) {
+                dying[snake] = true;
+                continue;
+            }
+            final int[] body = bodies[snake];
+            final int oldHead = body[heads[snake]];
+            final int oldTail = body[(heads[snake] + lengths[snake] - 1) & mask];
+            heads[snake] = (heads[snake] - 1) & mask;
+            body[heads[snake]] = target;
+            occupancy[target]++;
+            occupancy[oldTail]--;
+            key ^= zobrist.head(snake, oldHead) ^ zobrist.head(snake, target)
+                    ^ zobrist.body(snake, target) ^ zobrist.body(snake, oldTail)
+                    ^ zobrist.health(snake, healths[snake]);
+            healths[snake]--;
+            undoTails[base + snake] = oldTail;
+            undoFlags[base + snake] = MOVED;
+        }
+
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (!alive[snake] || dying[snake]) {
+                continue;
+            }
+            final int head = head(snake);
+            if (BitBoard.get(food, head)) {
+                undoFlags[base + snake] |= ATE;
+                healths[snake] = MAX_HEALTH;
+                final int[] body = bodies[snake];
+                final int tail = body[(heads[snake] + lengths[snake] - 1) & mask];
+                body[(heads[snake] + lengths[snake]) & mask] = tail;
+                occupancy[tail]++;
+                key ^= zobrist.body(snake, tail) ^ zobrist.length(snake, lengths[snake]) ^ zobrist.length(snake, lengths[snake] + 1);
+                lengths[snake]++;
+            } else if (BitBoard.get(hazards, head)) {
+                healths[snake] -= hazardDamage;
+            }
+            key ^= zobrist.health(snake, healths[snake]);
+        }
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if ((undoFlags[base + snake] & ATE) != 0 && BitBoard.get(food, head(snake))) {
+                BitBoard.clear(food, head(snake));
+                key ^= zobrist.food(head(snake));
+                undoFlags[base + snake] |= FOOD_CLEARED;
+            }
+        }
+
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (alive[snake] && (dying[snake] || healths[snake] <= 0)) {
+                eliminate(snake, base);
+            }
+        }
+
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (!alive[snake]) {
+                continue;
+            }
+            final int head = head(snake);
+            int headsHere = 0;
+            for (int other = 0; other < snakeCount; other++) {
+                if (alive[other] && head(other) == head) {
+                    headsHere++;
+                    if (other != snake && lengths[other] >= lengths[snake]) {
+                        dying[snake] = true;
+                    }
+                }
+            }
+            if (occupancy[head] > headsHere) {
+                dying[snake] = true;
+            }
+        }
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (alive[snake] && dying[snake]) {
+                eliminate(snake, base);
+            }
+        }
+    }
+
+    private void eliminate(final int snake, final int base) {
+        key ^= snakeKey(snake);
+        alive[snake] = false;
+        undoFlags[base + snake] |= ELIMINATED;
+        for (int i = 0; i < lengths[snake]; i++) {
+            occupancy[segment(snake, i)]--;
+        }
+    }
+
+    /**
+     * Restores the position exactly as it was before the last {@link #make(int[])}.
+     */
+    void unmake() {
+        final int frame = --undoDepth;
+        final int base = frame * snakeCount;
+        for (int snake = 0; snake < snakeCount; snake++) {
+            final int flags = undoFlags[base + snake];
+            if (flags == 0) {
+                continue;
+            }
+            final int[] body = bodies[snake];
+            if ((flags & ELIMINATED) != 0) {
+                alive[snake] = true;
+                for (int i = 0; i < lengths[snake]; i++) {
+                    occupancy[segment(snake, i)]++;
+                }
+            }
+            if ((flags & FOOD_CLEARED) != 0) {
+                BitBoard.set(food, head(snake));
+            }
+            if ((flags & ATE) != 0) {
+                final int index = (heads[snake] + lengths[snake] - 1) & mask;
+                occupancy[body[index]]--;
+                body[index] = undoTails[base + snake];
+            }
+            if ((flags & MOVED) != 0) {
+                occupancy[body[heads[snake]]]--;
+                occupancy[undoTails[base + snake]]++;
+            }
+            heads[snake] = undoHeads[base + snake];
+            lengths[snake] = undoLengths[base + snake];
+            healths[snake] = undoHealths[base + snake];
+        }
+        key = undoKeys[frame];
+    }
+
+    /**
+     * Writes the turns until each cell is free into the board's occupation timers, matching
+     * {@link GameState#updateMinOccupationTime}.
+     */
+    void fillOccupationTimes(final BitBoard board) {
+        Arrays.fill(board.occupationTime, 0);
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (!alive[snake]) {
+                continue;
+            }
+            final int length = lengths[snake];
+            for (int i = 0; i < length; i++) {
+                final int cell = segment(snake, i);
+                board.occupationTime[cell] = Math.max(board.occupationTime[cell], length - i);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Many positions of one board geometry in struct-of-arrays layout, scored all at once by a {@link BatchEvaluator}.
+ * <p>
+ * Position {@code i} owns the snakes from {@code snakeStarts[i]} to {@code snakeStarts[i + 1]}, our own snake first,
+ * and likewise ranges of {@link #food} and {@link #hazards}; the body of snake {@code s} is {@code lengths[s]} cells
+ * of {@link #segments} from {@code bodyStarts[s]}, head first. All cells are board cells, not packed coordinates. The
+ * arrays grow as positions are added and are kept by {@link #clear()}, so a batch can be filled again without
+ * allocating.
+ */
+final class PositionBatch {
+    private static final int INITIAL_CAPACITY = 64;
+
+    final Geometry geometry;
+    int count;
+    int[] turns = new int[INITIAL_CAPACITY];
+    int[] hazardDamages = new int[INITIAL_CAPACITY];
+    int[] snakeStarts = new int[INITIAL_CAPACITY + 1];
+    int[] foodStarts = new int[INITIAL_CAPACITY + 1];
+    int[] hazardStarts = new int[INITIAL_CAPACITY + 1];
+
+    int[] healths = new int[INITIAL_CAPACITY * 4];
+    int[] lengths = new int[INITIAL_CAPACITY * 4];
+    int[] bodyStarts = new int[INITIAL_CAPACITY * 4];
+
+    int[] food = new int[INITIAL_CAPACITY * 4];
+    int[] hazards = new int[INITIAL_CAPACITY * 4];
+    int[] segments = new int[INITIAL_CAPACITY * 16];
+    private int segmentCount;
+
+    PositionBatch(final Geometry geometry) {
+        this.geometry = geometry;
+    }
+
+    void clear() {
+        count = 0;
+        segmentCount = 0;
+    }
+
+    /**
+     * Adds the position of a finished request, seen by the request's own snake.
+     *
+     * @return the index of the position in the batch
+     */
+    int add(final MoveRequest request) {
+        if (request.width != geometry.width || request.height != geometry.height
+                || request.wrapped != geometry.wrapped) {
+            throw new IllegalArgumentException("Request of a " + request.width + "x" + request.height
+                    + " board does not fit a batch of " + geometry.width + "x" + geometry.height);
+        }
+        final int index = next(request.turn, request.hazardDamage);
+        addCells(request.food, request.foodCount, request.hazards, request.hazardCount);
+        addSnake(index, request.healths[request.you], request.bodies[request.you], request.lengths[request.you]);
+        for (int snake = 0; snake < request.snakeCount; snake++) {
+            if (snake != request.you) {
+                addSnake(index, request.healths[snake], request.bodies[snake], request.lengths[snake]);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds a lookahead position, seen by its snake 0; snakes that are not alive are left out.
+     *
+     * @return the index of the position in the batch
+     */
+    int add(final Position position, final int turn) {
+        if (position.geometry != geometry) {
+            throw new IllegalArgumentException("Position of a " + position.width + "x" + position.height
+                    + " board does not fit a batch of " + geometry.width + "x" + geometry.height);
+        }
+        if (!position.alive[0]) {
+            throw new IllegalArgumentException("Our own snake is not alive in the position");
+        }
+        final int index = next(turn, position.hazardDamage);
+        int foodCount = 0;
+        int hazardCount = 0;
+        for (int cell = 0; cell < position.cellCount; cell++) {
+            if (BitBoard.get(position.food, cell)) {
+                food = grow(food, foodStarts[index] + foodCount + 1);
+                food[foodStarts[index] + foodCount++] = cell;
+            }
+            if (BitBoard.get(position.hazards, cell)) {
+                hazards = grow(hazards, hazardStarts[index] + hazardCount + 1);
+                hazards[hazardStarts[index] + hazardCount++] = cell;
+            }
+        }
+        foodStarts[index + 1] = foodStarts[index] + foodCount;
+        hazardStarts[index + 1] = hazardStarts[index] + hazardCount;
+        for (int snake = 0; snake < position.snakeCount; snake++) {
+            if (!position.alive[snake]) {
+                continue;
+            }
+            final int length = position.lengths[snake];
+            final int slot = addSnake(index, position.healths[snake], length);
+            for (int i = 0; i < length; i++) {
+                segments[bodyStarts[slot] + i] = position.segment(snake, i);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the number of snakes of the position, our own one included
+     */
+    int snakeCount(final int index) {
+        return snakeStarts[index + 1] - snakeStarts[index];
+    }
+
+    /**
+     * @return the index of a new position without snakes, food or hazards
+     */
+    private int next(final int turn, final int hazardDamage) {
+        if (count == turns.length) {
+            final int capacity = count * 2;
+            turns = Arrays.copyOf(turns, capacity);
+            hazardDamages = Arrays.copyOf(hazardDamages, capacity);
+            snakeStarts = Arrays.copyOf(snakeStarts, capacity + 1);
+            foodStarts = Arrays.copyOf(foodStarts, capacity + 1);
+            hazardStarts = Arrays.copyOf(hazardStarts, capacity + 1);
+        }
+        final int index = count++;
+        turns[index] = turn;
+        hazardDamages[index] = hazardDamage;
+        if (index == 0) {
+            snakeStarts[0] = 0;
+            foodStarts[0] = 0;
+            hazardStarts[0] = 0;
+        }
+        snakeStarts[index + 1] = snakeStarts[index];
+        foodStarts[index + 1] = foodStarts[index];
+        hazardStarts[index + 1] = hazardStarts[index];
+        return index;
+    }
+
+    private void addCells(final int[] foodCells, final int foodCount, final int[] hazardCells, final int hazardCount) {
+        final int index = count - 1;
+        food = grow(food, foodStarts[index] + foodCount);
+        System.arraycopy(foodCells, 0, food, foodStarts[index], foodCount);
+        foodStarts[index + 1] = foodStarts[index] + foodCount;
+        hazards = grow(hazards, hazardStarts[index] + hazardCount);
+        System.arraycopy(hazardCells, 0, hazards, hazardStarts[index], hazardCount);
+        hazardStarts[index + 1] = hazardStarts[index] + hazardCount;
+    }
+
+    private void addSnake(final int index, final int health, final int[] body, final int length) {
+        final int slot = addSnake(index, health, length);
+        System.arraycopy(body, 0, segments, bodyStarts[slot], length);
+    }
+
+    /**
+     * @return the slot of a new snake of the position with room for its body
+     */
+    private int addSnake(final int index, final int health, final int length) {
+        final int slot = snakeStarts[index + 1]++;
+        if (slot == lengths.length) {
+            healths = Arrays.copyOf(healths, slot * 2);
+            lengths = Arrays.copyOf(lengths, slot * 2);
+            bodyStarts = Arrays.copyOf(bodyStarts, slot * 2);
+        }
+        healths[slot] = health;
+        lengths[slot] = length;
+        bodyStarts[slot] = segmentCount;
+        segmentCount += length;
+        segments = grow(segments, segmentCount);
+        return slot;
+    }
+
+    private static int[] grow(final int[] array, final int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+}
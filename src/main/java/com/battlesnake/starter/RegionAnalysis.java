@@ -0,0 +1,156 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Connected regions of the free cells around our head and their articulation points, computed once per evaluation.
+ * <p>
+ * An iterative depth first search (Tarjan's algorithm) starting at the free neighbours of our head labels their
+ * regions and, for every cell, the sizes of the pieces its region falls into when the cell is taken: moving onto
+ * an articulation point leaves the snake only the largest of them, everything else is {@link #cutOff(int) cut off}.
+ * <p>
+ * The search runs on a fixed graph: the cells a {@link FloodFill} from all neighbours reaches by their shortest
+ * arrival time, which counts cells that tails leave on the way. The {@link #reachable(int) reachable area} of a
+ * move is the move's cell plus the largest piece left behind it, so both measures come from the same graph.
+ */
+final class RegionAnalysis {
+    private static final int NONE = -1;
+
+    private int[] discovery = new int[0];
+    private int[] low = new int[0];
+    private int[] parent = new int[0];
+    private int[] subtree = new int[0];
+    private int[] separated = new int[0];
+    private int[] largestSeparated = new int[0];
+    private int[] region = new int[0];
+    private byte[] nextDirection = new byte[0];
+    private int[] stack = new int[0];
+    private int[] regionSizes = new int[4];
+    private final int[] starts = new int[4];
+    private int regionCount;
+
+    private void prepare(final int cellCount) {
+        if (discovery.length < cellCount) {
+            discovery = new int[cellCount];
+            low = new int[cellCount];
+            parent = new int[cellCount];
+            subtree = new int[cellCount];
+            separated = new int[cellCount];
+            largestSeparated = new int[cellCount];
+            region = new int[cellCount];
+            nextDirection = new byte[cellCount];
+            stack = new int[cellCount];
+        }
+        Arrays.fill(discovery, 0, cellCount, 0);
+        regionCount = 0;
+    }
+
+    /**
+     * Analyses the regions behind the given neighbours of our head.
+     *
+     * @param neighbors free cells next to our head, the possible moves
+     */
+    void compute(final BitBoard board, final int[] neighbors, final int count) {
+        prepare(board.cellCount);
+        System.arraycopy(neighbors, 0, starts, 0, count);
+        final FloodFill free = FloodFill.get();
+        free.fill(board, neighbors, count);
+        for (int i = 0; i < count; i++) {
+            if (free.isFilled(neighbors[i]) && discovery[neighbors[i]] == 0) {
+                search(board, free, neighbors[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of cells in the free region of the cell, 0 if the cell was not analysed
+     */
+    int regionSize(final int cell) {
+        return discovery[cell] == 0 ? 0 : regionSizes[region[cell]];
+    }
+
+    boolean isArticulationPoint(final int cell) {
+        return cutOff(cell) > 0;
+    }
+
+    /**
+     * @return the number of cells of the cell's region that are lost when the snake moves onto the cell and then
+     * into the largest piece the region falls into
+     */
+    int cutOff(final int cell) {
+        if (discovery[cell] == 0) {
+            return 0;
+        }
+        return regionSize(cell) - 1 - largestPiece(cell);
+    }
+
+    /**
+     * @return the cells the snake can use after moving onto the i-th neighbour, counting the neighbour itself and
+     * leaving out the cells the move cuts off
+     */
+    int reachable(final int i) {
+        final int cell = starts[i];
+        return discovery[cell] == 0 ? 0 : 1 + largestPiece(cell);
+    }
+
+    private int largestPiece(final int cell) {
+        final int rest = regionSizes[region[cell]] - 1 - separated[cell];
+        return Math.max(largestSeparated[cell], rest);
+    }
+
+    /**
+     * Depth first search from the root over the filled cells with an explicit stack. When a child is finished, its
+     * subtree is a piece of its own once its parent is taken if no back edge of the subtree reaches above the parent.
+     */
+    private void search(final BitBoard board, final FloodFill free, final int root) {
+        if (regionCount == regionSizes.length) {
+            regionSizes = Arrays.copyOf(regionSizes, regionCount * 2);
+        }
+        final int id = regionCount++;
+        final int[] neighbors = board.geometry.neighbors;
+        int time = 0;
+        int top = 0;
+        enter(root, NONE, ++time, id);
+        stack[top++] = root;
+        while (top > 0) {
+            final int cell = stack[top - 1];
+            final int direction = nextDirection[cell];
+            if (direction < 4) {
+                nextDirection[cell]++;
+                final int next = neighbors[cell * 4 + direction];
+                if (next == NONE || !free.isFilled(next)) {
+                    continue;
+                }
+                if (discovery[next] == 0) {
+                    enter(next, cell, ++time, id);
+                    stack[top++] = next;
+                } else if (next != parent[cell]) {
+                    low[cell] = Math.min(low[cell], discovery[next]);
+                }
+                continue;
+            }
+            top--;
+            final int above = parent[cell];
+            if (above != NONE) {
+                low[above] = Math.min(low[above], low[cell]);
+                subtree[above] += subtree[cell];
+                if (low[cell] >= discovery[above]) {
+                    separated[above] += subtree[cell];
+                    largestSeparated[above] = Math.max(largestSeparated[above], subtree[cell]);
+                }
+            }
+        }
+        regionSizes[id] = subtree[root];
+    }
+
+    private void enter(final int cell, final int above, final int time, final int id) {
+        discovery[cell] = time;
+        low[cell] = time;
+        parent[cell] = above;
+        subtree[cell] = 1;
+        separated[cell] = 0;
+        largestSeparated[cell] = 0;
+        region[cell] = id;
+        nextDirection[cell] = 0;
+    }
+}
@@ -0,0 +1,396 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Iterative deepening alpha-beta search over simultaneous moves.
+ * <p>
+ * The search is paranoid: on every turn our snake picks a move first and all opponents close enough to interact
+ * answer with the joint reply that is worst for us. Opponents that are out of reach for the remaining depth follow
+ * a single greedy move. Scores are from our point of view; losses and wins are adjusted by the turn they happen in,
+ * so surviving longer and winning sooner are preferred.
+ */
+final class Search {
+    static final int WIN = 500_000;
+    static final int LOSS = -WIN;
+    static final int TURN_SCORE = 1_000;
+    static final int MAX_DEPTH = 32;
+    static final int NOT_SEARCHED = Integer.MIN_VALUE;
+
+    static final int TERRITORY_SCORE = 2;
+    static final int LENGTH_SCORE = 10;
+
+    private static final int CHECK_INTERVAL = 63;
+    private static final int MATE_RANGE = (MAX_DEPTH + 2) * TURN_SCORE;
+    private static final Move[] MOVES = Move.values();
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final RuntimeException TIMEOUT = new RuntimeException("search deadline reached", null, false, false) {
+    };
+
+    private final Position position;
+    private final BitBoard board;
+    private final DistanceField field;
+    private final int[][] targets;
+    private final int[][] myMoves;
+    private final int[][][] replies;
+    private final int[][] replyCounts;
+    private final int[][] replyIndices;
+    private final int[] sources;
+    private final int snakeCount;
+
+    private TranspositionTable table;
+    private long deadline;
+    private long nodes;
+    private int completedDepth;
+    private boolean hadOpponents;
+
+    Search(final Geometry geometry, final int snakeCount) {
+        this.snakeCount = snakeCount;
+        position = new Position(geometry, snakeCount);
+        board = new BitBoard(geometry);
+        field = new DistanceField(geometry.cellCount);
+        targets = new int[MAX_DEPTH + 1][snakeCount];
+        myMoves = new int[MAX_DEPTH + 1][4];
+        replies = new int[MAX_DEPTH + 1][snakeCount][4];
+        replyCounts = new int[MAX_DEPTH + 1][snakeCount];
+        replyIndices = new int[MAX_DEPTH + 1][snakeCount];
+        sources = new int[snakeCount];
+    }
+
+    boolean fits(final Position other) {
+        return other.geometry == board.geometry && other.snakeCount == snakeCount;
+    }
+
+    int completedDepth() {
+        return completedDepth;
+    }
+
+    long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Searches the position with increasing depth until the deadline passes.
+     *
+     * @param deadline value of {@link System#nanoTime()} at which the search has to stop
+     * @param table    transposition table shared with earlier searches of the game, may be null
+     *
+     * @return the score of every move by {@link Move} ordinal from the deepest completed iteration,
+     * or null if not even the first iteration completed
+     */
+    int[] run(final Position root, final long deadline, final TranspositionTable table) {
+        return run(root, deadline, table, MAX_DEPTH);
+    }
+
+    /**
+     * Same as {@link #run(Position, long, TranspositionTable)}, but stops after {@code maxDepth} iterations.
+     */
+    int[] run(final Position root, final long deadline, final TranspositionTable table, final int maxDepth) {
+        this.deadline = deadline;
+        this.table = table;
+        nodes = 0;
+        completedDepth = 0;
+        hadOpponents = root.aliveOpponents() > 0;
+        position.copyFrom(root);
+
+        int[] best = null;
+        final int[] scores = new int[4];
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            try {
+                searchRoot(depth, scores);
+            } catch (RuntimeException e) {
+                if (e != TIMEOUT) {
+                    throw e;
+                }
+                break;
+            }
+            best = scores.clone();
+            completedDepth = depth;
+            if (isDecided(best)) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private void searchRoot(final int depth, final int[] scores) {
+        final Position root = position;
+        final int head = root.head(0);
+        final int neck = root.lengths[0] > 1 ? root.segment(0, 1) : Position.NONE;
+        for (Move move : MOVES) {
+            final int target = neighbor(root, head, move);
+            if (target != Position.NONE && target == neck) {
+                scores[move.ordinal()] = LOSS + TURN_SCORE;
+            } else {
+                scores[move.ordinal()] = replyNode(0, depth, target, -INFINITY, INFINITY);
+            }
+        }
+    }
+
+    /**
+     * Searches the position reached from {@code root} by the given joint move, for use by {@link ParallelSearch}.
+     *
+     * @param depth remaining depth including the joint move
+     * @param beta  the best score our opponents can already force for this move
+     *
+     * @return the score or {@link #NOT_SEARCHED} if the deadline passed first
+     */
+    int searchReply(final Position root, final int[] jointTargets, final int depth, final int beta,
+                    final long deadline, final boolean hadOpponents, final TranspositionTable table) {
+        this.deadline = deadline;
+        this.table = table;
+        this.hadOpponents = hadOpponents;
+        position.copyFrom(root);
+        position.make(jointTargets);
+        try {
+            return moveNode(1, depth - 1, -INFINITY, beta);
+        } catch (RuntimeException e) {
+            if (e != TIMEOUT) {
+                throw e;
+            }
+            return NOT_SEARCHED;
+        }
+    }
+
+    static int neighbor(final Position position, final int cell, final Move move) {
+        return position.geometry.neighbor(cell, move.ordinal());
+    }
+
+    static boolean isDecided(final int[] scores) {
+        for (int score : scores) {
+            if (Math.abs(score) < WIN - MAX_DEPTH * TURN_SCORE - TURN_SCORE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkDeadline() {
+        if ((++nodes & CHECK_INTERVAL) == 0 && System.nanoTime() - deadline > 0) {
+            throw TIMEOUT;
+        }
+    }
+
+    private int moveNode(final int ply, final int depth, int alpha, final int beta) {
+        checkDeadline();
+        if (!position.alive[0]) {
+            return LOSS + ply * TURN_SCORE;
+        }
+        if (hadOpponents && position.aliveOpponents() == 0) {
+            return WIN - ply * TURN_SCORE;
+        }
+
+        final long key = position.key;
+        int hashMove = TranspositionTable.NO_MOVE;
+        if (table != null) {
+            final long entry = table.probe(key);
+            if (entry != TranspositionTable.MISS) {
+                hashMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    final int score = fromTable(TranspositionTable.score(entry), ply);
+                    final int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || bound == TranspositionTable.LOWER && score >= beta
+                            || bound == TranspositionTable.UPPER && score <= alpha) {
+                        return score;
+                    }
+                }
+            }
+        }
+        if (depth == 0) {
+            final int score = evaluate(position);
+            if (table != null) {
+                table.store(key, score, 0, TranspositionTable.EXACT, TranspositionTable.NO_MOVE);
+            }
+            return score;
+        }
+
+        final int[] moves = myMoves[ply];
+        final int count = position.safeMoves(0, moves);
+        if (count == 0) {
+            return LOSS + (ply + 1) * TURN_SCORE;
+        }
+        final int head = position.head(0);
+        if (hashMove != TranspositionTable.NO_MOVE) {
+            moveToFront(moves, count, neighbor(position, head, MOVES[hashMove]));
+        }
+        final int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = moves[0];
+        for (int i = 0; i < count; i++) {
+            final int score = replyNode(ply, depth, moves[i], alpha, beta);
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (table != null) {
+            final int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, toTable(best, ply), depth, bound, direction(position, head, bestMove));
+        }
+        return best;
+    }
+
+    private static void moveToFront(final int[] moves, final int count, final int move) {
+        for (int i = 1; i < count; i++) {
+            if (moves[i] == move) {
+                moves[i] = moves[0];
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    private static int direction(final Position position, final int from, final int to) {
+        return position.geometry.direction(from, to);
+    }
+
+    /**
+     * Wins and losses are stored relative to the node instead of the root, so they stay valid when the same
+     * position is reached at another ply or in a later turn.
+     */
+    private static int toTable(final int score, final int ply) {
+        if (score >= WIN - MATE_RANGE) {
+            return score + ply * TURN_SCORE;
+        } else if (score <= LOSS + MATE_RANGE) {
+            return score - ply * TURN_SCORE;
+        }
+        return score;
+    }
+
+    private static int fromTable(final int score, final int ply) {
+        if (score >= WIN - MATE_RANGE) {
+            return score - ply * TURN_SCORE;
+        } else if (score <= LOSS + MATE_RANGE) {
+            return score + ply * TURN_SCORE;
+        }
+        return score;
+    }
+
+    private int replyNode(final int ply, final int depth, final int myTarget, final int alpha, int beta) {
+        final int[] plyTargets = targets[ply];
+        final int[] counts = replyCounts[ply];
+        final int[] indices = replyIndices[ply];
+        final int[][] options = replies[ply];
+        plyTargets[0] = myTarget;
+
+        collectReplies(position, depth, options, counts);
+        Arrays.fill(indices, 0);
+
+        int best = INFINITY;
+        while (true) {
+            for (int snake = 1; snake < snakeCount; snake++) {
+                plyTargets[snake] = options[snake][indices[snake]];
+            }
+            position.make(plyTargets);
+            final int score = moveNode(ply + 1, depth - 1, alpha, beta);
+            position.unmake();
+            if (score < best) {
+                best = score;
+                if (score < beta) {
+                    beta = score;
+                    if (alpha >= beta) {
+                        return best;
+                    }
+                }
+            }
+            if (!nextReply(indices, counts)) {
+                return best;
+            }
+        }
+    }
+
+    /**
+     * Collects the moves every opponent considers in reply to ours: all safe moves for opponents within reach in
+     * the remaining depth, a single greedy move for the others and {@link Position#NONE} for snakes without a move.
+     */
+    static void collectReplies(final Position position, final int depth, final int[][] options, final int[] counts) {
+        final int myHead = position.head(0);
+        for (int snake = 1; snake < position.snakeCount; snake++) {
+            if (!position.alive[snake]) {
+                counts[snake] = 1;
+                options[snake][0] = Position.NONE;
+                continue;
+            }
+            int count = position.safeMoves(snake, options[snake]);
+            if (count == 0) {
+                options[snake][0] = Position.NONE;
+                count = 1;
+            } else if (count > 1 && position.distance(myHead, position.head(snake)) > 2 * depth) {
+                options[snake][0] = greedyMove(position, options[snake], count);
+                count = 1;
+            }
+            counts[snake] = count;
+        }
+    }
+
+    /**
+     * Advances the joint reply counter like a mixed radix number.
+     *
+     * @return false once all combinations were visited
+     */
+    static boolean nextReply(final int[] indices, final int[] counts) {
+        for (int snake = 1; snake < counts.length; snake++) {
+            if (++indices[snake] < counts[snake]) {
+                return true;
+            }
+            indices[snake] = 0;
+        }
+        return false;
+    }
+
+    private static int greedyMove(final Position position, final int[] options, final int count) {
+        int best = options[0];
+        int bestFree = -1;
+        for (int i = 0; i < count; i++) {
+            final int free = position.freeNeighbors(options[i]);
+            if (free > bestFree) {
+                bestFree = free;
+                best = options[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Static evaluation: territory from a simultaneous breadth first search of all heads, plus length advantage.
+     */
+    private int evaluate(final Position position) {
+        position.fillOccupationTimes(board);
+        int sourceCount = 0;
+        sources[sourceCount++] = position.head(0);
+        int longestOpponent = 0;
+        for (int snake = 1; snake < snakeCount; snake++) {
+            if (position.alive[snake]) {
+                sources[sourceCount++] = position.head(snake);
+                longestOpponent = Math.max(longestOpponent, position.lengths[snake]);
+            }
+        }
+        field.compute(board, sources, sourceCount);
+        int bestOpponentTerritory = 0;
+        for (int i = 1; i < sourceCount; i++) {
+            bestOpponentTerritory = Math.max(bestOpponentTerritory, field.territory(i));
+        }
+        int score = TERRITORY_SCORE * (field.territory(0) - bestOpponentTerritory);
+        if (sourceCount > 1) {
+            score += LENGTH_SCORE * (position.lengths[0] - longestOpponent);
+        }
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "Search{depth=" + completedDepth + ", nodes=" + nodes + "}";
+    }
+
+    static String format(final int[] scores) {
+        return scores == null ? "none" : Arrays.toString(scores);
+    }
+}
@@ -0,0 +1,315 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process game engine playing one game between {@link Evaluator}s under the standard rules.
+ * <p>
+ * Moves, eating, starvation, hazard damage and collisions are resolved by {@link Position#apply(int[])}. On top of
+ * that the engine places the snakes and the starting food, spawns food like the official engine
+ * ({@link #MINIMUM_FOOD} on the board and a {@link #FOOD_SPAWN_CHANCE} percent chance for one more every turn) and,
+ * in royale mode, turns another row or column into hazards every {@link #SHRINK_EVERY_TURNS} turns.
+ * Every snake sees the game through its own {@link MoveRequest}, with its previous move time as reported latency,
+ * under a game id unique to the game, so evaluators reused across games start each with a fresh opponent model.
+ */
+final class SelfPlay {
+    static final int START_LENGTH = 3;
+    static final int MINIMUM_FOOD = 1;
+    static final int FOOD_SPAWN_CHANCE = 15;
+    static final int SHRINK_EVERY_TURNS = 25;
+    /**
+     * Numbers the games of the process, since duels replay a seed with the seats swapped on reused evaluators.
+     */
+    private static final AtomicLong GAMES = new AtomicLong();
+
+    private final int width;
+    private final int height;
+    private final Evaluator[] players;
+    private final LatencyHistogram[] latencies;
+    private final SplittableRandom random;
+    private final boolean royale;
+    private final int timeout;
+    private final int maxTurns;
+    private final String gameId;
+
+    private final MoveRequest request = new MoveRequest();
+    private final TurnDiff[] turnDiffs;
+    private final int[] reportedLatencies;
+    private final int[] targets;
+    private final int[] deathTurns;
+    private Position position;
+    private Consumer<MoveRequest> recorder;
+    private int hazardMinX;
+    private int hazardMaxX;
+    private int hazardMinY;
+    private int hazardMaxY;
+
+    /**
+     * @param players   the evaluator moving every snake
+     * @param latencies histogram to record every snake's move times into, entries may be shared or null
+     */
+    SelfPlay(final int width, final int height, final Evaluator[] players, final LatencyHistogram[] latencies,
+             final long seed, final boolean royale, final int timeout, final int maxTurns) {
+        this.width = width;
+        this.height = height;
+        this.players = players;
+        this.latencies = latencies;
+        this.random = new SplittableRandom(seed);
+        gameId = "self-play-" + seed + "-" + GAMES.incrementAndGet();
+        this.royale = royale;
+        this.timeout = timeout;
+        this.maxTurns = maxTurns;
+        turnDiffs = new TurnDiff[players.length];
+        for (int snake = 0; snake < players.length; snake++) {
+            turnDiffs[snake] = new TurnDiff();
+        }
+        reportedLatencies = new int[players.length];
+        targets = new int[players.length];
+        deathTurns = new int[players.length];
+    }
+
+    /**
+     * @param recorder receives every request before it is evaluated; the request is reused afterwards
+     */
+    void setRecorder(final Consumer<MoveRequest> recorder) {
+        this.recorder = recorder;
+    }
+
+    Result play() {
+        setUp();
+        final int snakeCount = players.length;
+        final int survivorsToEnd = snakeCount > 1 ? 1 : 0;
+        int turn = 0;
+        while (alive() > survivorsToEnd && turn < maxTurns) {
+            for (int snake = 0; snake < snakeCount; snake++) {
+                targets[snake] = position.alive[snake] ? move(snake, turn) : Position.NONE;
+            }
+            position.apply(targets);
+            turn++;
+            for (int snake = 0; snake < snakeCount; snake++) {
+                if (!position.alive[snake] && deathTurns[snake] < 0) {
+                    deathTurns[snake] = turn;
+                }
+            }
+            spawnFood();
+            if (royale && turn % SHRINK_EVERY_TURNS == 0) {
+                shrink();
+            }
+        }
+        int winner = Result.DRAW;
+        if (snakeCount > 1 && alive() == 1) {
+            for (int snake = 0; snake < snakeCount; snake++) {
+                if (position.alive[snake]) {
+                    winner = snake;
+                }
+            }
+        }
+        return new Result(winner, turn, deathTurns.clone(), position.lengths.clone());
+    }
+
+    private int move(final int snake, final int turn) {
+        request.load(position, snake, reportedLatencies);
+        request.turn = turn;
+        request.timeout = timeout;
+        request.gameId = gameId;
+        if (recorder != null) {
+            recorder.accept(request);
+        }
+        final GameState gameState = new GameState(request, turnDiffs[snake]);
+
+        final long start = System.nanoTime();
+        final Evaluator.MoveScore moveScore = players[snake].evaluate(gameState);
+        final long elapsed = System.nanoTime() - start;
+        reportedLatencies[snake] = (int) Math.max(1, elapsed / 1_000_000);
+        if (latencies[snake] != null) {
+            latencies[snake].record(elapsed);
+        }
+        return Search.neighbor(position, position.head(snake), moveScore.bestMove);
+    }
+
+    private int alive() {
+        int count = 0;
+        for (int snake = 0; snake < players.length; snake++) {
+            if (position.alive[snake]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Places the snakes on shuffled standard start points and food next to every snake and in the centre.
+     */
+    private void setUp() {
+        position = new Position(width, height, players.length);
+        position.setHazardDamage(GameState.DEFAULT_HAZARD_DAMAGE);
+        hazardMinX = 0;
+        hazardMaxX = width - 1;
+        hazardMinY = 0;
+        hazardMaxY = height - 1;
+        Arrays.fill(deathTurns, -1);
+        Arrays.fill(reportedLatencies, 0);
+
+        final int min = 1;
+        final int mid = (width - 1) / 2;
+        final int maxX = width - 2;
+        final int maxY = height - 2;
+        final int midY = (height - 1) / 2;
+        final int[] starts = {
+                cell(min, min), cell(maxX, maxY), cell(min, maxY), cell(maxX, min),
+                cell(mid, min), cell(maxX, midY), cell(mid, maxY), cell(min, midY)
+        };
+        final int corners = 4;
+        shuffle(starts, 0, corners);
+        shuffle(starts, corners, starts.length);
+        for (int snake = 0; snake < players.length; snake++) {
+            final int start = snake < starts.length ? starts[snake] : randomFreeCell();
+            position.placeSnake(snake, start, START_LENGTH);
+        }
+        for (int snake = 0; snake < players.length; snake++) {
+            placeStartFood(position.head(snake));
+        }
+        final int centre = cell(mid, midY);
+        if (position.occupancy[centre] == 0) {
+            position.addFood(centre);
+        }
+    }
+
+    /**
+     * Puts food on a free diagonal neighbour of the start cell that does not lie towards the centre.
+     */
+    private void placeStartFood(final int start) {
+        final int x = start % width;
+        final int y = start / width;
+        final int centreX = (width - 1) / 2;
+        final int centreY = (height - 1) / 2;
+        final int[] candidates = new int[4];
+        int count = 0;
+        for (int dx = -1; dx <= 1; dx += 2) {
+            for (int dy = -1; dy <= 1; dy += 2) {
+                final int foodX = x + dx;
+                final int foodY = y + dy;
+                if (foodX < 0 || foodX >= width || foodY < 0 || foodY >= height) {
+                    continue;
+                }
+                final boolean towardsCentre = Math.abs(foodX - centreX) < Math.abs(x - centreX)
+                        && Math.abs(foodY - centreY) < Math.abs(y - centreY);
+                final int cell = cell(foodX, foodY);
+                if (!towardsCentre && position.occupancy[cell] == 0 && !BitBoard.get(position.food, cell)) {
+                    candidates[count++] = cell;
+                }
+            }
+        }
+        if (count > 0) {
+            position.addFood(candidates[random.nextInt(count)]);
+        }
+    }
+
+    private void spawnFood() {
+        int food = 0;
+        for (int cell = 0; cell < position.cellCount; cell++) {
+            if (BitBoard.get(position.food, cell)) {
+                food++;
+            }
+        }
+        int spawn = Math.max(0, MINIMUM_FOOD - food);
+        if (spawn == 0 && random.nextInt(100) < FOOD_SPAWN_CHANCE) {
+            spawn = 1;
+        }
+        for (int i = 0; i < spawn; i++) {
+            final int cell = randomFreeCell();
+            if (cell != Position.NONE) {
+                position.addFood(cell);
+            }
+        }
+    }
+
+    /**
+     * Turns the outermost row or column on a random side of the remaining safe area into hazards.
+     */
+    private void shrink() {
+        if (hazardMinX > hazardMaxX || hazardMinY > hazardMaxY) {
+            return;
+        }
+        switch (random.nextInt(4)) {
+            case 0:
+                hazardColumn(hazardMinX++);
+                break;
+            case 1:
+                hazardColumn(hazardMaxX--);
+                break;
+            case 2:
+                hazardRow(hazardMinY++);
+                break;
+            default:
+                hazardRow(hazardMaxY--);
+        }
+    }
+
+    private void hazardColumn(final int x) {
+        for (int y = 0; y < height; y++) {
+            position.addHazard(cell(x, y));
+        }
+    }
+
+    private void hazardRow(final int y) {
+        for (int x = 0; x < width; x++) {
+            position.addHazard(cell(x, y));
+        }
+    }
+
+    private int randomFreeCell() {
+        int free = 0;
+        for (int cell = 0; cell < position.cellCount; cell++) {
+            if (isFree(cell)) {
+                free++;
+            }
+        }
+        if (free == 0) {
+            return Position.NONE;
+        }
+        int chosen = random.nextInt(free);
+        for (int cell = 0; cell < position.cellCount; cell++) {
+            if (isFree(cell) && chosen-- == 0) {
+                return cell;
+            }
+        }
+        return Position.NONE;
+    }
+
+    private boolean isFree(final int cell) {
+        return position.occupancy[cell] == 0 && !BitBoard.get(position.food, cell);
+    }
+
+    private void shuffle(final int[] cells, final int from, final int to) {
+        for (int i = to - 1; i > from; i--) {
+            final int j = from + random.nextInt(i - from + 1);
+            final int swap = cells[i];
+            cells[i] = cells[j];
+            cells[j] = swap;
+        }
+    }
+
+    private int cell(final int x, final int y) {
+        return y * width + x;
+    }
+
+    static final class Result {
+        static final int DRAW = -1;
+
+        final int winner;
+        final int turns;
+        final int[] deathTurns;
+        final int[] lengths;
+
+        Result(final int winner, final int turns, final int[] deathTurns, final int[] lengths) {
+            this.winner = winner;
+            this.turns = turns;
+            this.deathTurns = deathTurns;
+            this.lengths = lengths;
+        }
+    }
+}
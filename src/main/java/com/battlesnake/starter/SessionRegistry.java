@@ -0,0 +1,66 @@
+package com.battlesnake.starter;
+
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one {@link GameSession} per game id, so concurrent games never share an evaluator.
+ * <p>
+ * Sessions are removed when their game ends and, in case the end request never arrives, once they have been idle
+ * for longer than the idle timeout.
+ */
+public class SessionRegistry {
+    static final long IDLE_TIMEOUT_SECONDS = Long.getLong("SESSION_IDLE_TIMEOUT", 600);
+
+    private final Map<String, GameSession> sessions = new ConcurrentHashMap<>();
+    private final Logger log;
+    private final long idleTimeoutNanos;
+
+    public SessionRegistry(final Logger log, final long idleTimeoutSeconds) {
+        this.log = log;
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long period = Math.max(1, idleTimeoutSeconds / 4);
+        sweeper.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a fresh session for the game, replacing any earlier one with the same id.
+     */
+    GameSession start(final String gameId) {
+        GameSession session = new GameSession(gameId, log);
+        sessions.put(gameId, session);
+        return session;
+    }
+
+    /**
+     * @return the session of the game, created on demand if the start request was missed
+     */
+    GameSession get(final String gameId) {
+        return sessions.computeIfAbsent(gameId, id -> new GameSession(id, log));
+    }
+
+    void end(final String gameId) {
+        sessions.remove(gameId);
+    }
+
+    void evictIdle() {
+        final long now = System.nanoTime();
+        sessions.values().removeIf(session -> {
+            if (now - session.lastAccess() > idleTimeoutNanos) {
+                log.info("Evicting idle session of game {}", session.gameId);
+                return true;
+            }
+            return false;
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package com.battlesnake.starter;
+
+import java.util.Locale;
+
+/**
+ * Sequential probability ratio test on game results: is a player at least {@code elo1} stronger than its opponent
+ * ({@link #H1}) or at most {@code elo0} ({@link #H0})?
+ * <p>
+ * Uses the usual normal approximation of the log-likelihood ratio for win/draw/loss results, so results can be
+ * added in batches and the test stops as soon as one hypothesis is accepted with error rates alpha and beta.
+ */
+final class Sprt {
+    static final int H0 = -1;
+    static final int CONTINUE = 0;
+    static final int H1 = 1;
+
+    private final double score0;
+    private final double score1;
+    private final double lowerBound;
+    private final double upperBound;
+    private long wins;
+    private long draws;
+    private long losses;
+
+    Sprt(final double elo0, final double elo1, final double alpha, final double beta) {
+        score0 = score(elo0);
+        score1 = score(elo1);
+        lowerBound = Math.log(beta / (1 - alpha));
+        upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    private static double score(final double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    void add(final long wins, final long draws, final long losses) {
+        this.wins += wins;
+        this.draws += draws;
+        this.losses += losses;
+    }
+
+    long games() {
+        return wins + draws + losses;
+    }
+
+    double llr() {
+        final double games = games();
+        if (games == 0) {
+            return 0;
+        }
+        final double score = (wins + draws / 2.0) / games;
+        final double variance = (wins + draws / 4.0) / games - score * score;
+        if (variance <= 0) {
+            return 0;
+        }
+        return (score1 - score0) * (2 * score - score0 - score1) / (2 * variance / games);
+    }
+
+    int status() {
+        final double llr = llr();
+        if (llr >= upperBound) {
+            return H1;
+        }
+        if (llr <= lowerBound) {
+            return H0;
+        }
+        return CONTINUE;
+    }
+
+    /**
+     * @return the Elo difference estimated from the score so far
+     */
+    double elo() {
+        final double games = games();
+        final double score = games == 0 ? 0.5 : (wins + draws / 2.0) / games;
+        final double clamped = Math.max(1e-6, Math.min(1 - 1e-6, score));
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "W/D/L %d/%d/%d, elo %+.1f, LLR %.2f [%.2f, %.2f]",
+                wins, draws, losses, elo(), llr(), lowerBound, upperBound);
+    }
+}
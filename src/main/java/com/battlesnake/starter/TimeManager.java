@@ -0,0 +1,117 @@
+package com.battlesnake.starter;
+
+/**
+ * Think time of one game: estimates the network round trip from the latencies the engine reports and splits the
+ * remaining time of each turn between the evaluator stages and the lookahead.
+ * <p>
+ * The engine reports how long our previous response took as seen from its side, so the reported latency minus our
+ * own think time of the previous turn is one sample of the round trip. The samples are smoothed like TCP's
+ * retransmission timer, mean plus four deviations, so a single slow response widens the margin at once while it
+ * shrinks again only gradually. The time left after that and a fixed safety margin is the hard deadline of the
+ * turn; stages that have not started by then are skipped. The lookahead gets a share of it depending on how
+ * critical the position is: little if our move is forced, everything in close fights and tight spots.
+ */
+final class TimeManager {
+    static final int SAFETY_MARGIN_MILLIS = Integer.getInteger("TIME_SAFETY_MARGIN", 60);
+    static final int DEFAULT_NETWORK_LATENCY = 150;
+    static final double FORCED_SHARE = 0.25;
+    static final double NORMAL_SHARE = 0.75;
+    static final double CRITICAL_SHARE = 1.0;
+
+    private static final double GAIN = 1.0 / 8;
+    private static final double DEVIATION_GAIN = 1.0 / 4;
+    private static final int DEVIATIONS = 4;
+
+    /**
+     * How much a turn deserves the time it can get.
+     */
+    enum Criticality {
+        FORCED(FORCED_SHARE),
+        NORMAL(NORMAL_SHARE),
+        CRITICAL(CRITICAL_SHARE);
+
+        final double share;
+
+        Criticality(final double share) {
+            this.share = share;
+        }
+    }
+
+    private double smoothedLatency = -1;
+    private double latencyDeviation;
+    private int previousTurn = -1;
+    private int lastThinkMillis;
+    private long start;
+    private long budgetNanos;
+    private long deadline;
+    private long searchDeadline;
+
+    /**
+     * Starts a turn: takes the reported latency into the round trip estimate and sets the hard deadline.
+     *
+     * @param start value of {@link System#nanoTime()} when the turn started
+     */
+    void begin(final GameState gameState, final long start) {
+        final int turn = gameState.request.turn;
+        if (gameState.myLatency > 0 && turn == previousTurn + 1) {
+            observe(Math.max(0, gameState.myLatency - lastThinkMillis));
+        }
+        previousTurn = turn;
+        this.start = start;
+        final long budget = Math.max(0, gameState.timeout - Math.round(networkLatency()) - SAFETY_MARGIN_MILLIS);
+        budgetNanos = budget * 1_000_000L;
+        deadline = start + budgetNanos;
+        searchDeadline = deadline;
+    }
+
+    private void observe(final int sample) {
+        if (smoothedLatency < 0) {
+            smoothedLatency = sample;
+            latencyDeviation = sample / 2.0;
+            return;
+        }
+        latencyDeviation += DEVIATION_GAIN * (Math.abs(sample - smoothedLatency) - latencyDeviation);
+        smoothedLatency += GAIN * (sample - smoothedLatency);
+    }
+
+    /**
+     * @return the round trip time to reserve in milliseconds
+     */
+    double networkLatency() {
+        return smoothedLatency < 0 ? DEFAULT_NETWORK_LATENCY : smoothedLatency + DEVIATIONS * latencyDeviation;
+    }
+
+    /**
+     * Sets the deadline of the lookahead to the share of the turn's budget the position deserves.
+     *
+     * @return the deadline of the lookahead as a value of {@link System#nanoTime()}
+     */
+    long allocate(final Criticality criticality) {
+        searchDeadline = start + (long) (budgetNanos * criticality.share);
+        return searchDeadline;
+    }
+
+    long searchDeadline() {
+        return searchDeadline;
+    }
+
+    /**
+     * @return whether the hard deadline of the turn has passed and the best move so far has to be returned
+     */
+    boolean isExpired() {
+        return System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * Ends the turn; its think time is subtracted from the next reported latency.
+     */
+    void end(final long end) {
+        lastThinkMillis = (int) ((end - start) / 1_000_000);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TimeManager{network=%.1fms, budget=%dms, search=%dms}", networkLatency(),
+                budgetNanos / 1_000_000, (searchDeadline - start) / 1_000_000);
+    }
+}
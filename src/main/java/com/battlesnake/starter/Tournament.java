@@ -0,0 +1,207 @@
+package com.battlesnake.starter;
+
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays many {@link SelfPlay} games in parallel and reports win rates, game lengths and move times per player.
+ * <p>
+ * Every game runs on one thread with one {@link Evaluator} per snake, reused for the following games of that
+ * thread; the searches themselves are single-threaded. Players are assigned to snakes in rotation, so each player
+ * starts from every seat equally often. Arguments are {@code key=value} pairs:
+ * <pre>
+ * games=1000 threads=&lt;cores&gt; width=11 height=11 players=4,4 timeout=500 maxTurns=1000 seed=1 royale=false
+ * </pre>
+ * {@code players} lists every player as its search depth or {@code mcts} for Monte Carlo tree search, optionally
+ * followed by {@code :} and a {@link Weights} file; the number of snakes per game equals the number of players.
+ * Run it from the packaged jar: {@code java -cp target/starter-snake-java.jar com.battlesnake.starter.Tournament}.
+ */
+public final class Tournament {
+    private final int games;
+    private final int threads;
+    private final int width;
+    private final int height;
+    private final int[] depths;
+    private final boolean[] monteCarlo;
+    private final Weights[] weights;
+    private final int timeout;
+    private final int maxTurns;
+    private final long seed;
+    private final boolean royale;
+
+    private final LongAdder[] wins;
+    private final LongAdder[] seats;
+    private final LongAdder[] survivedTurns;
+    private final LatencyHistogram[] latencies;
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder totalTurns = new LongAdder();
+    private final ThreadLocal<Evaluator[]> evaluators = new ThreadLocal<>();
+
+    Tournament(final int games, final int threads, final int width, final int height, final int[] depths,
+               final boolean[] monteCarlo, final Weights[] weights, final int timeout, final int maxTurns, final long seed,
+               final boolean royale) {
+        this.games = games;
+        this.threads = threads;
+        this.width = width;
+        this.height = height;
+        this.depths = depths;
+        this.monteCarlo = monteCarlo;
+        this.weights = weights;
+        this.timeout = timeout;
+        this.maxTurns = maxTurns;
+        this.seed = seed;
+        this.royale = royale;
+        wins = adders(depths.length);
+        seats = adders(depths.length);
+        survivedTurns = adders(depths.length);
+        latencies = new LatencyHistogram[depths.length];
+        for (int i = 0; i < depths.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int width = 11;
+        int height = 11;
+        String players = "4,4";
+        int timeout = GameState.DEFAULT_TIMEOUT;
+        int maxTurns = 1000;
+        long seed = 1;
+        boolean royale = false;
+        for (String arg : args) {
+            final int split = arg.indexOf('=');
+            if (split < 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            final String value = arg.substring(split + 1);
+            switch (arg.substring(0, split)) {
+                case "games" -> games = Integer.parseInt(value);
+                case "threads" -> threads = Integer.parseInt(value);
+                case "width" -> width = Integer.parseInt(value);
+                case "height" -> height = Integer.parseInt(value);
+                case "players" -> players = value;
+                case "timeout" -> timeout = Integer.parseInt(value);
+                case "maxTurns" -> maxTurns = Integer.parseInt(value);
+                case "seed" -> seed = Long.parseLong(value);
+                case "royale" -> royale = Boolean.parseBoolean(value);
+                default -> throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+        final String[] specs = players.split(",");
+        final int[] depths = new int[specs.length];
+        final boolean[] monteCarlo = new boolean[specs.length];
+        final Weights[] weights = new Weights[specs.length];
+        for (int i = 0; i < specs.length; i++) {
+            final String[] parts = specs[i].trim().split(":", 2);
+            monteCarlo[i] = parts[0].equals("mcts");
+            depths[i] = monteCarlo[i] ? Search.MAX_DEPTH : Integer.parseInt(parts[0]);
+            weights[i] = parts.length > 1 ? Weights.load(Paths.get(parts[1])) : Weights.configured();
+        }
+        Tournament tournament = new Tournament(games, threads, width, height, depths, monteCarlo, weights, timeout,
+                maxTurns, seed, royale);
+        final long start = System.nanoTime();
+        tournament.run();
+        System.out.print(tournament.report((System.nanoTime() - start) / 1e9));
+    }
+
+    private static LongAdder[] adders(final int count) {
+        final LongAdder[] result = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+
+    void run() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>(games);
+            for (int game = 0; game < games; game++) {
+                final int index = game;
+                results.add(executor.submit(() -> play(index)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private void play(final int game) {
+        final int snakeCount = depths.length;
+        Evaluator[] players = evaluators.get();
+        if (players == null) {
+            players = new Evaluator[snakeCount];
+            for (int snake = 0; snake < snakeCount; snake++) {
+                players[snake] = new Evaluator(NOPLogger.NOP_LOGGER, null);
+            }
+            evaluators.set(players);
+        }
+        final LatencyHistogram[] snakeLatencies = new LatencyHistogram[snakeCount];
+        for (int snake = 0; snake < snakeCount; snake++) {
+            final int player = player(game, snake);
+            players[snake].setMaxSearchDepth(depths[player]);
+            players[snake].setMonteCarlo(monteCarlo[player]);
+            players[snake].setWeights(weights[player]);
+            snakeLatencies[snake] = latencies[player];
+        }
+
+        final SelfPlay.Result result = new SelfPlay(width, height, players, snakeLatencies, seed * 1_000_003L + game,
+                royale, timeout, maxTurns).play();
+
+        totalTurns.add(result.turns);
+        if (result.winner == SelfPlay.Result.DRAW) {
+            draws.increment();
+        } else {
+            wins[player(game, result.winner)].increment();
+        }
+        for (int snake = 0; snake < snakeCount; snake++) {
+            final int player = player(game, snake);
+            seats[player].increment();
+            survivedTurns[player].add(result.deathTurns[snake] < 0 ? result.turns : result.deathTurns[snake]);
+        }
+    }
+
+    private int player(final int game, final int snake) {
+        return (snake + game) % depths.length;
+    }
+
+    String report(final double seconds) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%d games on %dx%d%s in %.1f s, %.1f turns on average, %d draws%n",
+                games, width, height, royale ? " royale" : "", seconds, (double) totalTurns.sum() / Math.max(1, games),
+                draws.sum()));
+        builder.append(String.format(Locale.ROOT, "%-8s %6s %7s %9s %10s %9s %8s %8s%n",
+                "player", "engine", "wins", "win rate", "survived", "mean ms", "p50 ms", "p99 ms"));
+        for (int player = 0; player < depths.length; player++) {
+            final long played = Math.max(1, seats[player].sum());
+            builder.append(String.format(Locale.ROOT, "%-8s %6s %7d %8.1f%% %10.1f %9.2f %8s %8s%n",
+                    "p" + player, monteCarlo[player] ? "mcts" : String.valueOf(depths[player]), wins[player].sum(),
+                    100.0 * wins[player].sum() / played,
+                    (double) survivedTurns[player].sum() / played, latencies[player].meanMillis(),
+                    bound(latencies[player].quantileBound(0.5)), bound(latencies[player].quantileBound(0.99))));
+        }
+        for (int player = 0; player < depths.length; player++) {
+            builder.append("Move times of p").append(player).append(":\n").append(latencies[player]);
+        }
+        return builder.toString();
+    }
+
+    private static String bound(final long nanos) {
+        final long[] bounds = LatencyHistogram.MILLISECONDS;
+        return nanos < 0 ? ">" + bounds[bounds.length - 1] / 1_000_000 : "<=" + nanos / 1_000_000;
+    }
+}
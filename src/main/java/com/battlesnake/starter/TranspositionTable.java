@@ -0,0 +1,116 @@
+package com.battlesnake.starter;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size, lock-free transposition table for {@link Search} results.
+ * <p>
+ * Entries are two longs in parallel arrays: the packed data and the key XOR the data. A torn write by a concurrent
+ * thread therefore fails validation on probe instead of returning another position's data. Keys map to buckets of
+ * {@link #BUCKET_SIZE} slots; a bucket keeps the deepest results and prefers to evict entries of older searches.
+ */
+final class TranspositionTable {
+    static final int ENTRIES = Integer.getInteger("TT_ENTRIES", 1 << 20);
+    static final long MISS = 0;
+
+    static final int EXACT = 1;
+    static final int LOWER = 2;
+    static final int UPPER = 3;
+    static final int NO_MOVE = 4;
+
+    private static final int BUCKET_SIZE = 4;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int age;
+
+    TranspositionTable(final int entries) {
+        final int size = Math.max(BUCKET_SIZE, Integer.highestOneBit(entries));
+        keys = new long[size];
+        data = new long[size];
+        bucketMask = size / BUCKET_SIZE - 1;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, MISS);
+    }
+
+    /**
+     * Marks the start of a new search so entries of earlier searches are replaced first.
+     */
+    void nextAge() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * @return the packed entry for the key or {@link #MISS}
+     */
+    long probe(final long key) {
+        final int first = bucket(key);
+        for (int i = first; i < first + BUCKET_SIZE; i++) {
+            final long entry = data[i];
+            if (entry != MISS && (keys[i] ^ entry) == key) {
+                return entry;
+            }
+        }
+        return MISS;
+    }
+
+    void store(final long key, final int score, final int depth, final int bound, final int move) {
+        final long entry = pack(score, depth, bound, move, age);
+        final int first = bucket(key);
+        int replace = first;
+        int worst = Integer.MAX_VALUE;
+        for (int i = first; i < first + BUCKET_SIZE; i++) {
+            final long existing = data[i];
+            if (existing == MISS) {
+                replace = i;
+                break;
+            }
+            if ((keys[i] ^ existing) == key) {
+                if (depth < depth(existing) && age(existing) == age && bound != EXACT) {
+                    return;
+                }
+                replace = i;
+                break;
+            }
+            final int value = age(existing) == age ? depth(existing) : depth(existing) - 256;
+            if (value < worst) {
+                worst = value;
+                replace = i;
+            }
+        }
+        data[replace] = entry;
+        keys[replace] = key ^ entry;
+    }
+
+    private int bucket(final long key) {
+        return (int) ((key ^ (key >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+
+    private static long pack(final int score, final int depth, final int bound, final int move, final int age) {
+        return (score & 0xFFFFFFFFL) | ((long) depth << 32) | ((long) bound << 40) | ((long) move << 42) | ((long) age << 45);
+    }
+
+    static int score(final long entry) {
+        return (int) entry;
+    }
+
+    static int depth(final long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int bound(final long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    static int move(final long entry) {
+        return (int) (entry >>> 42) & 0x7;
+    }
+
+    private static int age(final long entry) {
+        return (int) (entry >>> 45) & 0xFF;
+    }
+}
@@ -0,0 +1,218 @@
+package com.battlesnake.starter;
+
+import org.slf4j.helpers.NOPLogger;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tunes the {@link Weights} by SPSA on self-play duels.
+ * <p>
+ * Every iteration perturbs all weights at once by plus or minus their {@link Weights#STEPS step} times c_k and plays
+ * a batch of games between the two perturbed vectors in parallel on all cores; the score difference moves the
+ * weights along the perturbation. Every {@code checkEvery} iterations an {@link Sprt} match of the current weights
+ * against the starting weights decides whether the tuning already reached {@code elo1} and can stop early. The
+ * weights are written to {@code out} after every check and at the end. Arguments are {@code key=value} pairs:
+ * <pre>
+ * iterations=500 batch=32 depth=2 width=11 height=11 threads=&lt;cores&gt; start=&lt;weights file&gt; out=tuned.properties
+ * a=4 c=1 checkEvery=50 verifyGames=2000 elo0=0 elo1=10 seed=1 maxTurns=500
+ * </pre>
+ * The search of every game is limited to {@code depth}, so a smaller {@code -DTT_ENTRIES} saves a lot of memory.
+ */
+public final class Tuner {
+    private static final double ALPHA = 0.602;
+    private static final double GAMMA = 0.101;
+
+    private final ExecutorService executor;
+    private final ThreadLocal<Evaluator[]> evaluators = new ThreadLocal<>();
+    private final int threads;
+    private final int width;
+    private final int height;
+    private final int depth;
+    private final int maxTurns;
+
+    Tuner(final int threads, final int width, final int height, final int depth, final int maxTurns) {
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tuner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threads = threads;
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+        this.maxTurns = maxTurns;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = 500;
+        int batch = 32;
+        int depth = 2;
+        int width = 11;
+        int height = 11;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Weights start = Weights.configured();
+        Path out = Paths.get("tuned.properties");
+        double a = 4;
+        double c = 1;
+        int checkEvery = 50;
+        int verifyGames = 2000;
+        double elo0 = 0;
+        double elo1 = 10;
+        long seed = 1;
+        int maxTurns = 500;
+        for (String arg : args) {
+            final int split = arg.indexOf('=');
+            if (split < 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            final String value = arg.substring(split + 1);
+            switch (arg.substring(0, split)) {
+                case "iterations" -> iterations = Integer.parseInt(value);
+                case "batch" -> batch = Integer.parseInt(value);
+                case "depth" -> depth = Integer.parseInt(value);
+                case "width" -> width = Integer.parseInt(value);
+                case "height" -> height = Integer.parseInt(value);
+                case "threads" -> threads = Integer.parseInt(value);
+                case "start" -> start = Weights.load(Paths.get(value));
+                case "out" -> out = Paths.get(value);
+                case "a" -> a = Double.parseDouble(value);
+                case "c" -> c = Double.parseDouble(value);
+                case "checkEvery" -> checkEvery = Integer.parseInt(value);
+                case "verifyGames" -> verifyGames = Integer.parseInt(value);
+                case "elo0" -> elo0 = Double.parseDouble(value);
+                case "elo1" -> elo1 = Double.parseDouble(value);
+                case "seed" -> seed = Long.parseLong(value);
+                case "maxTurns" -> maxTurns = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        Tuner tuner = new Tuner(threads, width, height, depth, maxTurns);
+        final double[] theta = new double[Weights.NAMES.length];
+        final int[] startValues = start.values();
+        for (int i = 0; i < theta.length; i++) {
+            theta[i] = startValues[i];
+        }
+        final SplittableRandom random = new SplittableRandom(seed);
+        final double stability = iterations / 10.0;
+        long gameSeed = seed * 1_000_003L;
+        for (int k = 0; k < iterations; k++) {
+            final double ak = a / Math.pow(k + 1 + stability, ALPHA);
+            final double ck = c / Math.pow(k + 1, GAMMA);
+            final int[] delta = new int[theta.length];
+            final int[] plus = new int[theta.length];
+            final int[] minus = new int[theta.length];
+            for (int i = 0; i < theta.length; i++) {
+                delta[i] = random.nextBoolean() ? 1 : -1;
+                final double shift = ck * Weights.STEPS[i] * delta[i];
+                plus[i] = (int) Math.round(theta[i] + shift);
+                minus[i] = (int) Math.round(theta[i] - shift);
+            }
+            final long[] result = tuner.match(new Weights(plus), new Weights(minus), batch, gameSeed);
+            gameSeed += batch;
+            final double score = (result[0] + result[1] / 2.0) / Math.max(1, batch) - 0.5;
+            for (int i = 0; i < theta.length; i++) {
+                theta[i] += ak * score * delta[i] / ck * Weights.STEPS[i];
+                theta[i] = Math.max(Weights.MIN[i], Math.min(Weights.MAX[i], theta[i]));
+            }
+            System.out.printf(Locale.ROOT, "iteration %d: score %+.3f, weights %s%n", k + 1, score, format(theta));
+
+            if ((k + 1) % checkEvery == 0 || k + 1 == iterations) {
+                final Weights current = round(theta);
+                current.save(out);
+                final Sprt sprt = tuner.verify(current, start, verifyGames, elo0, elo1, gameSeed);
+                gameSeed += sprt.games();
+                System.out.println("check after iteration " + (k + 1) + ": " + sprt);
+                if (sprt.status() == Sprt.H1) {
+                    System.out.println("Accepted an improvement of at least " + elo1 + " elo, stopping early");
+                    break;
+                }
+            }
+        }
+        System.out.print(round(theta));
+        tuner.executor.shutdown();
+    }
+
+    private static Weights round(final double[] theta) {
+        final int[] values = new int[theta.length];
+        for (int i = 0; i < theta.length; i++) {
+            values[i] = (int) Math.round(theta[i]);
+        }
+        return new Weights(values);
+    }
+
+    private static String format(final double[] theta) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < theta.length; i++) {
+            builder.append(i == 0 ? "" : ", ").append(String.format(Locale.ROOT, "%.1f", theta[i]));
+        }
+        return builder.append("]").toString();
+    }
+
+    /**
+     * Plays an SPRT match of {@code candidate} against {@code baseline} in batches of one game per thread and side
+     * until the test decides or {@code maxGames} are played.
+     */
+    Sprt verify(final Weights candidate, final Weights baseline, final int maxGames, final double elo0,
+                final double elo1, final long seed) throws Exception {
+        final Sprt sprt = new Sprt(elo0, elo1, 0.05, 0.05);
+        final int batch = 2 * threads;
+        long gameSeed = seed;
+        while (sprt.status() == Sprt.CONTINUE && sprt.games() < maxGames) {
+            final long[] result = match(candidate, baseline, batch, gameSeed);
+            gameSeed += batch;
+            sprt.add(result[0], result[1], result[2]);
+        }
+        return sprt;
+    }
+
+    /**
+     * Plays {@code games} duels in parallel. Both sides play every start position once from each seat.
+     *
+     * @return wins, draws and losses of {@code first}
+     */
+    long[] match(final Weights first, final Weights second, final int games, final long seed) throws Exception {
+        List<Future<SelfPlay.Result>> results = new ArrayList<>(games);
+        for (int game = 0; game < games; game++) {
+            final boolean firstStarts = game % 2 == 0;
+            final long gameSeed = seed + game / 2;
+            results.add(executor.submit(() -> play(firstStarts ? first : second, firstStarts ? second : first, gameSeed)));
+        }
+        final long[] outcome = new long[3];
+        for (int game = 0; game < games; game++) {
+            final SelfPlay.Result result = results.get(game).get();
+            final int firstSeat = game % 2 == 0 ? 0 : 1;
+            if (result.winner == SelfPlay.Result.DRAW) {
+                outcome[1]++;
+            } else if (result.winner == firstSeat) {
+                outcome[0]++;
+            } else {
+                outcome[2]++;
+            }
+        }
+        return outcome;
+    }
+
+    private SelfPlay.Result play(final Weights seat0, final Weights seat1, final long seed) {
+        Evaluator[] players = evaluators.get();
+        if (players == null) {
+            players = new Evaluator[]{new Evaluator(NOPLogger.NOP_LOGGER, null), new Evaluator(NOPLogger.NOP_LOGGER, null)};
+            for (Evaluator player : players) {
+                player.setMaxSearchDepth(depth);
+            }
+            evaluators.set(players);
+        }
+        players[0].setWeights(seat0);
+        players[1].setWeights(seat1);
+        return new SelfPlay(width, height, players, new LatencyHistogram[2], seed, false, GameState.DEFAULT_TIMEOUT,
+                maxTurns).play();
+    }
+}
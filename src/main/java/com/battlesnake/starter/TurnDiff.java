@@ -0,0 +1,136 @@
+package com.battlesnake.starter;
+
+/**
+ * Turn-to-turn state of one game: the previous move request and the board and position built from it, so the next
+ * turn can patch them instead of rebuilding them from scratch.
+ * <p>
+ * A request is patched in if it is a legal successor of the previous one: the next turn of the same game on the
+ * same board, every snake known from the previous turn under its id, its head moved to a neighbouring cell and the
+ * rest of the body following, one segment longer exactly if the head reached food. Snakes may have been eliminated.
+ * Anything else, e.g. a repeated turn after a timeout or a new game, falls back to a full rebuild.
+ * <p>
+ * Distance fields and cavities are still computed from scratch every turn, as they start at our head, which moves
+ * every turn.
+ */
+final class TurnDiff {
+    private MoveRequest previous = new MoveRequest();
+    private MoveRequest current = new MoveRequest();
+    private boolean hasCurrent;
+    private boolean successor;
+    private boolean sameSnakes;
+    private BitBoard board;
+    private Position position;
+    private int positionTurn;
+    private long patched;
+    private long rebuilt;
+
+    /**
+     * Remembers the request as the current turn and loads it into the board, patching the previous turn's board
+     * if the request is its successor.
+     *
+     * @return the board of the request; it is reused for the next turn
+     */
+    BitBoard next(final MoveRequest request) {
+        final MoveRequest swap = previous;
+        previous = current;
+        current = swap;
+        current.copyFrom(request);
+        successor = hasCurrent && isSuccessor(previous, current);
+        hasCurrent = true;
+        final Geometry geometry = Geometry.of(request.width, request.height, request.wrapped);
+        if (board == null || board.geometry != geometry) {
+            board = new BitBoard(geometry);
+            board.load(request);
+        } else if (successor) {
+            board.load(previous, request);
+        } else {
+            board.load(request);
+        }
+        if (successor) {
+            patched++;
+        } else {
+            rebuilt++;
+        }
+        return board;
+    }
+
+    /**
+     * @return the previous turn's request if the current request is its successor, null otherwise
+     */
+    MoveRequest previousTurn() {
+        return successor ? previous : null;
+    }
+
+    /**
+     * @param reuse position of an earlier turn to load the game state into, may be null
+     * @return the position of the game state, patched from the previous turn's position if possible
+     */
+    Position position(final GameState gameState, final Position reuse) {
+        if (successor && sameSnakes && reuse != null && reuse == position && positionTurn == previous.turn) {
+            position.update(previous, current);
+        } else {
+            position = Position.of(gameState, reuse);
+        }
+        positionTurn = current.turn;
+        return position;
+    }
+
+    private boolean isSuccessor(final MoveRequest before, final MoveRequest after) {
+        if (after.width != before.width || after.height != before.height || after.wrapped != before.wrapped
+                || after.turn != before.turn + 1
+                || !after.gameId.equals(before.gameId) || after.snakeCount > before.snakeCount) {
+            return false;
+        }
+        final Geometry geometry = Geometry.of(after.width, after.height, after.wrapped);
+        sameSnakes = after.snakeCount == before.snakeCount && after.you == before.you;
+        for (int snake = 0; snake < after.snakeCount; snake++) {
+            int previousSnake = -1;
+            for (int candidate = 0; candidate < before.snakeCount; candidate++) {
+                if (after.sameId(snake, before, candidate)) {
+                    previousSnake = candidate;
+                    break;
+                }
+            }
+            if (previousSnake < 0 || !isMove(geometry, before, previousSnake, after, snake)) {
+                return false;
+            }
+            sameSnakes &= previousSnake == snake;
+        }
+        return true;
+    }
+
+    private static boolean isMove(final Geometry geometry, final MoveRequest before, final int beforeSnake,
+                                  final MoveRequest after, final int afterSnake) {
+        final int[] from = before.bodies[beforeSnake];
+        final int[] to = after.bodies[afterSnake];
+        final int fromLength = before.lengths[beforeSnake];
+        final int toLength = after.lengths[afterSnake];
+        if (fromLength == 0 || toLength == 0 || geometry.direction(from[0], to[0]) < 0) {
+            return false;
+        }
+        final boolean ate = contains(before.food, before.foodCount, to[0]);
+        if (toLength != (ate ? fromLength + 1 : fromLength)) {
+            return false;
+        }
+        for (int i = 1; i < fromLength; i++) {
+            if (to[i] != from[i - 1]) {
+                return false;
+            }
+        }
+        return !ate || to[toLength - 1] == to[toLength - 2];
+    }
+
+    private static boolean contains(final int[] cells, final int count, final int cell) {
+        for (int i = 0; i < count; i++) {
+            if (cells[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "TurnDiff{successor=" + successor + ", patched=" + patched + ", rebuilt=" + rebuilt + "}";
+    }
+}
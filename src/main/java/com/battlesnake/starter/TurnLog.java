@@ -0,0 +1,65 @@
+package com.battlesnake.starter;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the log messages of one turn and decides at the end of the turn whether they are written at all.
+ * <p>
+ * A turn is written if it is sampled, i.e. every {@link #SAMPLE_TURNS}th turn (0 disables sampling), or if the
+ * chosen move is losing and {@link #LOG_ON_LOSS} is set. Messages of turns that are not written are never rendered;
+ * callers can check {@link #isRecording()} before building anything expensive. Since a loss is only known at the end
+ * of the turn, {@link #LOG_ON_LOSS} records every turn and is off by default. Nothing is recorded for a logger with
+ * INFO disabled.
+ */
+final class TurnLog {
+    static final int SAMPLE_TURNS = Integer.getInteger("LOG_SAMPLE_TURNS", 1);
+    static final boolean LOG_ON_LOSS = Boolean.parseBoolean(System.getProperty("LOG_ON_LOSS", "false"));
+
+    private final Logger log;
+    private final boolean enabled;
+    private final List<Object> messages = new ArrayList<>();
+    private boolean sampled;
+
+    TurnLog(final Logger log) {
+        this.log = log;
+        enabled = log.isInfoEnabled();
+    }
+
+    static boolean isSampled(final int turn) {
+        return SAMPLE_TURNS > 0 && turn % SAMPLE_TURNS == 0;
+    }
+
+    void begin(final int turn) {
+        messages.clear();
+        sampled = isSampled(turn);
+    }
+
+    /**
+     * @return whether messages added now may still be written
+     */
+    boolean isRecording() {
+        return enabled && (sampled || LOG_ON_LOSS);
+    }
+
+    /**
+     * Adds a message; it is rendered with {@code toString()} on the log thread if the turn gets written.
+     */
+    void add(final Object message) {
+        if (isRecording()) {
+            messages.add(message);
+        }
+    }
+
+    void end(final boolean losing) {
+        if (sampled || losing && LOG_ON_LOSS) {
+            final AsyncLog out = AsyncLog.get();
+            for (Object message : messages) {
+                out.info(log, "{}", message);
+            }
+        }
+        messages.clear();
+    }
+}
@@ -0,0 +1,205 @@
+package com.battlesnake.starter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a bundled corpus of recorded move requests through the {@link Main.Handler} before the port opens, so the
+ * first games are not played by the interpreter.
+ * <p>
+ * Every request goes through the same code as a real one: turn 0 starts a session, moves are decoded alternately by
+ * the streaming {@link MoveRequestDecoder} and through a Jackson tree, and consecutive turns are patched by the
+ * session's {@link TurnDiff}. The corpus is replayed until {@code WARMUP_MILLIS} have passed; afterwards the sessions
+ * are ended, the {@link Metrics} are reset and the {@link OpponentModel} forgets the names of the recorded snakes.
+ * {@link #main} records a new corpus from self-play games.
+ */
+final class Warmup {
+    static final String CORPUS = "/warmup-moves.jsonl";
+    static final long WARMUP_MILLIS = Long.getLong("WARMUP_MILLIS", 10_000);
+
+    private Warmup() {
+    }
+
+    /**
+     * @return the number of requests replayed
+     */
+    static int run(final Main.Handler handler, final ObjectMapper mapper, final Logger log) throws IOException {
+        final List<byte[]> corpus = load();
+        if (corpus.isEmpty()) {
+            log.warn("No warm-up corpus found at {}", CORPUS);
+            return 0;
+        }
+        final long start = System.nanoTime();
+        final long deadline = start + WARMUP_MILLIS * 1_000_000L;
+        final Map<String, JsonNode> games = new LinkedHashMap<>();
+        int replayed = 0;
+        replay:
+        while (true) {
+            for (byte[] request : corpus) {
+                if (System.nanoTime() - deadline >= 0) {
+                    break replay;
+                }
+                final JsonNode tree = mapper.readTree(request);
+                if (tree.path("turn").asInt() == 0) {
+                    handler.start(tree);
+                }
+                games.put(tree.path("game").path("id").asText(""), tree);
+                if ((replayed & 1) == 0) {
+                    handler.move(MoveRequestDecoder.decode(request));
+                } else {
+                    handler.move(tree);
+                }
+                replayed++;
+            }
+        }
+        for (JsonNode tree : games.values()) {
+            handler.end(tree);
+        }
+        Metrics.get().reset();
+        OpponentModel.clearNames();
+        log.info("Warmed up with {} requests in {} ms", replayed, (System.nanoTime() - start) / 1_000_000);
+        return replayed;
+    }
+
+    private static List<byte[]> load() throws IOException {
+        final List<byte[]> corpus = new ArrayList<>();
+        try (InputStream in = Warmup.class.getResourceAsStream(CORPUS)) {
+            if (in == null) {
+                return corpus;
+            }
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    corpus.add(line.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * Records a corpus: the requests our snake, the first one, sees in self-play games, one JSON request per line.
+     * <p>
+     * Usage: {@code Warmup out=src/main/resources/warmup-moves.jsonl games=2 players=4 depth=2 timeout=100
+     * maxTurns=100 royale=true seed=1}. The timeout is stored in the requests and bounds the lookahead while
+     * warming up.
+     */
+    public static void main(String[] args) throws IOException {
+        String out = "src/main/resources" + CORPUS;
+        int games = 2;
+        int players = 4;
+        int depth = 2;
+        int timeout = 100;
+        int maxTurns = 100;
+        boolean royale = true;
+        long seed = 1;
+        for (String arg : args) {
+            final int split = arg.indexOf('=');
+            if (split < 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            final String value = arg.substring(split + 1);
+            switch (arg.substring(0, split)) {
+                case "out" -> out = value;
+                case "games" -> games = Integer.parseInt(value);
+                case "players" -> players = Integer.parseInt(value);
+                case "depth" -> depth = Integer.parseInt(value);
+                case "timeout" -> timeout = Integer.parseInt(value);
+                case "maxTurns" -> maxTurns = Integer.parseInt(value);
+                case "royale" -> royale = Boolean.parseBoolean(value);
+                case "seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+        final ObjectMapper mapper = new ObjectMapper();
+        int recorded = 0;
+        try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+            for (int game = 0; game < games; game++) {
+                final Evaluator[] evaluators = new Evaluator[players];
+                for (int snake = 0; snake < players; snake++) {
+                    evaluators[snake] = new Evaluator(NOPLogger.NOP_LOGGER, null);
+                    evaluators[snake].setMaxSearchDepth(depth);
+                }
+                final SelfPlay selfPlay = new SelfPlay(11, 11, evaluators, new LatencyHistogram[players],
+                        seed + game, royale, timeout, maxTurns);
+                final String gameId = "warmup-" + game;
+                final List<String> lines = new ArrayList<>();
+                selfPlay.setRecorder(request -> {
+                    if (request.snakeId(request.you).equals("a")) {
+                        lines.add(toJson(mapper, request, gameId).toString());
+                    }
+                });
+                selfPlay.play();
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+                recorded += lines.size();
+            }
+        }
+        System.out.println("Recorded " + recorded + " requests to " + out);
+    }
+
+    /**
+     * @return the request in the format of the game engine
+     */
+    static ObjectNode toJson(final ObjectMapper mapper, final MoveRequest request, final String gameId) {
+        final ObjectNode root = mapper.createObjectNode();
+        final ObjectNode game = root.putObject("game");
+        game.put("id", gameId);
+        final ObjectNode ruleset = game.putObject("ruleset");
+        ruleset.put("name", request.wrapped ? MoveRequest.WRAPPED : "standard");
+        ruleset.putObject("settings").put("hazardDamagePerTurn", request.hazardDamage);
+        game.put("timeout", request.timeout);
+        root.put("turn", request.turn);
+        final ObjectNode board = root.putObject("board");
+        board.put("height", request.height);
+        board.put("width", request.width);
+        putCells(board.putArray("food"), request.food, request.foodCount, request.width);
+        putCells(board.putArray("hazards"), request.hazards, request.hazardCount, request.width);
+        final ArrayNode snakes = board.putArray("snakes");
+        for (int snake = 0; snake < request.snakeCount; snake++) {
+            putSnake(snakes.addObject(), request, snake);
+        }
+        putSnake(root.putObject("you"), request, request.you);
+        return root;
+    }
+
+    private static void putSnake(final ObjectNode node, final MoveRequest request, final int snake) {
+        final int width = request.width;
+        final int[] body = request.bodies[snake];
+        node.put("id", request.snakeId(snake));
+        node.put("name", "snake-" + request.snakeId(snake));
+        node.put("health", request.healths[snake]);
+        putCells(node.putArray("body"), body, request.lengths[snake], width);
+        node.put("latency", String.valueOf(request.latencies[snake]));
+        node.putObject("head").put("x", body[0] % width).put("y", body[0] / width);
+        node.put("length", request.lengths[snake]);
+        node.put("shout", "");
+        node.put("squad", "");
+    }
+
+    private static void putCells(final ArrayNode array, final int[] cells, final int count, final int width) {
+        for (int i = 0; i < count; i++) {
+            array.addObject().put("x", cells[i] % width).put("y", cells[i] / width);
+        }
+    }
+}
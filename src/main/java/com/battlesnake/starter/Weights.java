@@ -0,0 +1,139 @@
+package com.battlesnake.starter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * The tunable heuristic weights of the {@link Evaluator}.
+ * <p>
+ * Weights are stored as a properties file with one {@code NAME=value} line per weight; missing weights keep their
+ * default. The server loads the file named by the {@code WEIGHTS} system property, if set. For tuning, every weight
+ * has a step size, the change that is expected to matter, and a range it is clamped to.
+ */
+final class Weights {
+    static final int FOOD_SCORE = 0;
+    static final int CAPTURING_SCORE = 1;
+    static final int LOSING_DUEL_SCORE = 2;
+    static final int WINNING_DUEL_SCORE = 3;
+    static final int LARGE_CAVITY_SCORE = 4;
+    static final int EDGE_SCORE = 5;
+    static final int HP_THRESHOLD = 6;
+    static final int FOOD_SCORE_MULTIPLIER_WHEN_LOW = 7;
+    static final int HAZARD_ESCAPE_SCORE = 8;
+
+    static final String[] NAMES = {
+            "FOOD_SCORE", "CAPTURING_SCORE", "LOSING_DUEL_SCORE", "WINNING_DUEL_SCORE",
+            "LARGE_CAVITY_SCORE", "EDGE_SCORE", "HP_THRESHOLD", "FOOD_SCORE_MULTIPLIER_WHEN_LOW", "HAZARD_ESCAPE_SCORE"
+    };
+    static final int[] STEPS = {2, 10, 10, 10, 40, 1, 5, 1, 10};
+    static final int[] MIN = {0, 0, -1000, 0, 0, -100, 0, 1, 0};
+    static final int[] MAX = {1000, 1000, 0, 1000, 2000, 0, 100, 10, 1000};
+    static final Weights DEFAULT = new Weights(new int[]{10, 50, -70, 45, 200, -1, 25, 3, 60});
+
+    private static volatile Weights configured;
+
+    final int foodScore;
+    final int capturingScore;
+    final int losingDuelScore;
+    final int winningDuelScore;
+    final int largeCavityScore;
+    final int edgeScore;
+    final int hpThreshold;
+    final int foodScoreMultiplierWhenLow;
+    final int hazardEscapeScore;
+    private final int[] values;
+
+    /**
+     * @param values one value per weight by index, clamped to the weight's range
+     */
+    Weights(final int[] values) {
+        if (values.length != NAMES.length) {
+            throw new IllegalArgumentException("Expected " + NAMES.length + " weights but got " + values.length);
+        }
+        this.values = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            this.values[i] = Math.max(MIN[i], Math.min(MAX[i], values[i]));
+        }
+        foodScore = this.values[FOOD_SCORE];
+        capturingScore = this.values[CAPTURING_SCORE];
+        losingDuelScore = this.values[LOSING_DUEL_SCORE];
+        winningDuelScore = this.values[WINNING_DUEL_SCORE];
+        largeCavityScore = this.values[LARGE_CAVITY_SCORE];
+        edgeScore = this.values[EDGE_SCORE];
+        hpThreshold = this.values[HP_THRESHOLD];
+        foodScoreMultiplierWhenLow = this.values[FOOD_SCORE_MULTIPLIER_WHEN_LOW];
+        hazardEscapeScore = this.values[HAZARD_ESCAPE_SCORE];
+    }
+
+    /**
+     * @return the weights named by the {@code WEIGHTS} system property, the defaults if it is not set
+     */
+    static Weights configured() {
+        Weights result = configured;
+        if (result == null) {
+            final String file = System.getProperty("WEIGHTS");
+            try {
+                result = file == null ? DEFAULT : load(Paths.get(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load weights from " + file, e);
+            }
+            configured = result;
+        }
+        return result;
+    }
+
+    static Weights load(final Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        final int[] values = DEFAULT.values();
+        for (String name : properties.stringPropertyNames()) {
+            final int index = Arrays.asList(NAMES).indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown weight " + name + " in " + file);
+            }
+            values[index] = Integer.parseInt(properties.getProperty(name).trim());
+        }
+        return new Weights(values);
+    }
+
+    void save(final Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write(toString());
+        }
+    }
+
+    int[] values() {
+        return values.clone();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof Weights && Arrays.equals(values, ((Weights) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    /**
+     * @return the weights in properties file format
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < NAMES.length; i++) {
+            builder.append(NAMES[i]).append('=').append(values[i]).append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.battlesnake.starter;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Random keys for Zobrist hashing of {@link Position}s.
+ * <p>
+ * Keys are derived from fixed seeds per board size and snake index, so the same position hashes to the same
+ * key in every search of a game. Health and hazard damage are hashed exactly, as one point of health decides
+ * whether a snake starves or survives a hazard.
+ */
+final class Zobrist {
+    static final int MIN_SNAKES = 16;
+
+    private static final Map<Integer, Zobrist> CACHE = new ConcurrentHashMap<>();
+
+    final int snakeCapacity;
+    private final long[] food;
+    private final long[] hazards;
+    private final long[] hazardDamages;
+    private final long[][] heads;
+    private final long[][] bodies;
+    private final long[][] lengths;
+    private final long[][] healths;
+
+    private Zobrist(final int cellCount, final int snakeCapacity) {
+        this.snakeCapacity = snakeCapacity;
+        food = keys(cellCount, 0, 0);
+        hazards = keys(cellCount, 5, 0);
+        hazardDamages = keys(cellCount, Position.MAX_HEALTH + 1, 6, 0);
+        heads = new long[snakeCapacity][];
+        bodies = new long[snakeCapacity][];
+        lengths = new long[snakeCapacity][];
+        healths = new long[snakeCapacity][];
+        for (int snake = 0; snake < snakeCapacity; snake++) {
+            heads[snake] = keys(cellCount, 1, snake);
+            bodies[snake] = keys(cellCount, 2, snake);
+            lengths[snake] = keys(cellCount, 3, snake);
+            healths[snake] = keys(cellCount, Position.MAX_HEALTH + 1, 4, snake);
+        }
+    }
+
+    private static long[] keys(final int cellCount, final int kind, final int snake) {
+        return keys(cellCount, cellCount + 2, kind, snake);
+    }
+
+    private static long[] keys(final int cellCount, final int size, final int kind, final int snake) {
+        final SplittableRandom random = new SplittableRandom(((long) cellCount << 32) ^ ((long) kind << 24) ^ snake);
+        final long[] keys = new long[size];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    static Zobrist of(final int cellCount, final int snakeCount) {
+        final Zobrist zobrist = CACHE.computeIfAbsent(cellCount, count -> new Zobrist(count, Math.max(MIN_SNAKES, snakeCount)));
+        if (zobrist.snakeCapacity >= snakeCount) {
+            return zobrist;
+        }
+        final Zobrist larger = new Zobrist(cellCount, snakeCount);
+        CACHE.put(cellCount, larger);
+        return larger;
+    }
+
+    long food(final int cell) {
+        return food[cell];
+    }
+
+    long hazard(final int cell) {
+        return hazards[cell];
+    }
+
+    long hazardDamage(final int damage) {
+        return hazardDamages[Math.max(0, Math.min(damage, Position.MAX_HEALTH))];
+    }
+
+    long head(final int snake, final int cell) {
+        return heads[snake][cell];
+    }
+
+    long body(final int snake, final int cell) {
+        return bodies[snake][cell];
+    }
+
+    long length(final int snake, final int length) {
+        return lengths[snake][Math.min(length, lengths[snake].length - 1)];
+    }
+
+    long health(final int snake, final int health) {
+        return healths[snake][Math.max(0, Math.min(health, Position.MAX_HEALTH))];
+    }
+}
@@ -0,0 +1,59 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchEvaluatorTest {
+    private static final int POSITIONS = 500;
+
+    @Test
+    void batchScoresMatchScoringOnePositionAtATime() {
+        final RandomGames games = new RandomGames(25);
+        final Geometry geometry = Geometry.of(11, 11, false);
+        final PositionBatch fromPositions = new PositionBatch(geometry);
+        final PositionBatch fromRequests = new PositionBatch(geometry);
+        final int[][] expected = new int[POSITIONS][];
+        int count = 0;
+        while (count < POSITIONS) {
+            final Position position = games.position(11, 11, 1 + count % 4, count % 30);
+            if (!position.alive[0]) {
+                continue;
+            }
+            final MoveRequest request = new MoveRequest();
+            request.load(position, 0, new int[position.snakeCount]);
+            request.turn = count;
+            expected[count] = scoreOne(request);
+            fromPositions.add(position, count);
+            fromRequests.add(request);
+            count++;
+        }
+        final BatchEvaluator batchEvaluator = new BatchEvaluator(Weights.configured());
+        assertScores(expected, batchEvaluator.score(fromPositions));
+        assertScores(expected, batchEvaluator.score(fromRequests));
+    }
+
+    private static int[] scoreOne(final MoveRequest request) {
+        final Evaluator evaluator = new Evaluator(NOPLogger.NOP_LOGGER, null);
+        final GameState gameState = new GameState(request, (BitBoard) null);
+        final int[] moveScores = new int[4];
+        evaluator.considerBounds(gameState, moveScores);
+        evaluator.stopCollisions(gameState, moveScores);
+        final int[] neighbors = new int[4];
+        final int count = gameState.getInBoardNeighbors(gameState.headCell, true, neighbors);
+        evaluator.handleCavities(gameState, moveScores, neighbors, count, new StringBuilder());
+        evaluator.penalizeEdges(gameState, moveScores, neighbors, count);
+        evaluator.incentivizeFood(gameState, moveScores);
+        evaluator.escapeHazards(gameState, moveScores);
+        return moveScores;
+    }
+
+    private static void assertScores(final int[][] expected, final int[] scores) {
+        for (int i = 0; i < expected.length; i++) {
+            for (int move = 0; move < 4; move++) {
+                assertEquals(expected[i][move], scores[i * 4 + move], "position " + i + " move " + move);
+            }
+        }
+    }
+}
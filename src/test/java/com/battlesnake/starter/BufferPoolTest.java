@@ -0,0 +1,60 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BufferPoolTest {
+    private final List<StringBuilder> resets = new ArrayList<>();
+
+    @Test
+    void ownerGetsItsBufferBack() {
+        final BufferPool<StringBuilder> pool = new BufferPool<>(2);
+        final Object first = new Object();
+        final Object second = new Object();
+        final StringBuilder firstBuffer = new StringBuilder("first");
+        final StringBuilder secondBuffer = new StringBuilder("second");
+        pool.release(first, firstBuffer);
+        pool.release(second, secondBuffer);
+        assertSame(secondBuffer, acquire(pool, second));
+        assertSame(firstBuffer, acquire(pool, first));
+        assertEquals(0, resets.size());
+    }
+
+    @Test
+    void otherOwnersWaitUntilThePoolIsFull() {
+        final BufferPool<StringBuilder> pool = new BufferPool<>(2);
+        final StringBuilder oldest = new StringBuilder("oldest");
+        pool.release(new Object(), oldest);
+        assertNull(acquire(pool, new Object()));
+        pool.release(new Object(), new StringBuilder("newest"));
+        assertSame(oldest, acquire(pool, new Object()));
+        assertEquals(List.of(oldest), resets);
+    }
+
+    @Test
+    void releaseDropsTheOldestBuffer() {
+        final BufferPool<StringBuilder> pool = new BufferPool<>(1);
+        final Object first = new Object();
+        pool.release(first, new StringBuilder("first"));
+        pool.release(new Object(), new StringBuilder("second"));
+        assertNull(pool.acquire(first, buffer -> buffer.toString().equals("first"), resets::add));
+    }
+
+    @Test
+    void buffersThatDoNotFitAreSkipped() {
+        final BufferPool<StringBuilder> pool = new BufferPool<>(1);
+        final Object owner = new Object();
+        pool.release(owner, new StringBuilder("small"));
+        assertNull(pool.acquire(owner, buffer -> buffer.length() > 5, resets::add));
+    }
+
+    private StringBuilder acquire(final BufferPool<StringBuilder> pool, final Object owner) {
+        return pool.acquire(owner, buffer -> true, resets::add);
+    }
+}
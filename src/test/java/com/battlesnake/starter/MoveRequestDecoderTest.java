@@ -0,0 +1,68 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoveRequestDecoderTest {
+    private static final String BOARD = "\"board\":{\"height\":11,\"width\":11,\"food\":[{\"x\":5,\"y\":5}],"
+            + "\"hazards\":[],\"snakes\":[{\"id\":\"a\",\"name\":\"A\",\"health\":54,"
+            + "\"body\":[{\"x\":0,\"y\":1},{\"x\":1,\"y\":1}],\"length\":2}]}";
+
+    @Test
+    void decodesOurSnake() throws IOException {
+        final MoveRequest request = decode("{\"game\":{\"id\":\"g\"},\"turn\":3," + BOARD
+                + ",\"you\":{\"id\":\"a\"}}");
+        assertEquals("g", request.gameId);
+        assertEquals(3, request.turn);
+        assertEquals(0, request.you);
+        assertEquals(11, request.head(0));
+    }
+
+    @Test
+    void missingOwnSnakeIsAnIOException() {
+        assertThrows(IOException.class, () -> decode("{\"turn\":3," + BOARD + "}"));
+        assertThrows(IOException.class, () -> decode("{\"turn\":3," + BOARD + ",\"you\":{\"id\":\"b\"}}"));
+    }
+
+    @Test
+    void malformedBodyIsAnIOException() {
+        assertThrows(IOException.class, () -> decode("[]"));
+        assertThrows(IOException.class, () -> decode("{\"turn\":"));
+    }
+
+    @Test
+    void coordinateOffTheBoardIsAnIOException() {
+        assertThrows(IOException.class, () -> decodeWith("{\"x\":5,\"y\":5}", "{\"x\":11,\"y\":5}"));
+        assertThrows(IOException.class, () -> decodeWith("{\"x\":5,\"y\":5}", "{\"x\":5,\"y\":11}"));
+        assertThrows(IOException.class, () -> decodeWith("{\"x\":0,\"y\":1}", "{\"x\":-1,\"y\":1}"));
+        assertThrows(IOException.class, () -> decodeWith("\"hazards\":[]", "\"hazards\":[{\"x\":3,\"y\":-2}]"));
+    }
+
+    @Test
+    void emptyBodyIsAnIOException() {
+        assertThrows(IOException.class, () -> decodeWith("[{\"x\":0,\"y\":1},{\"x\":1,\"y\":1}]", "[]"));
+    }
+
+    @Test
+    void emptyBoardIsAnIOException() {
+        assertThrows(IOException.class, () -> decodeWith("\"width\":11", "\"width\":0"));
+    }
+
+    /**
+     * Decodes a request for our snake on {@link #BOARD} with one part of the board replaced.
+     */
+    private static MoveRequest decodeWith(final String part, final String replacement) throws IOException {
+        return decode("{\"turn\":3," + BOARD.replace(part, replacement) + ",\"you\":{\"id\":\"a\"}}");
+    }
+
+    private static MoveRequest decode(final String body) throws IOException {
+        final MoveRequest request = new MoveRequest();
+        MoveRequestDecoder.decode(body.getBytes(StandardCharsets.UTF_8), request);
+        return request;
+    }
+}
@@ -0,0 +1,29 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class OpponentModelTest {
+    @Test
+    void fullNameMapEvictsTheLeastRecentlyUsedName() {
+        OpponentModel.clearNames();
+        final OpponentModel.Counts first = OpponentModel.named("name-0");
+        final OpponentModel.Counts second = OpponentModel.named("name-1");
+        for (int i = 2; i < OpponentModel.MAX_NAMES; i++) {
+            OpponentModel.named("name-" + i);
+        }
+        assertSame(first, OpponentModel.named("name-0"));
+        OpponentModel.named("name-" + OpponentModel.MAX_NAMES);
+        assertSame(first, OpponentModel.named("name-0"));
+        assertNotSame(second, OpponentModel.named("name-1"));
+        OpponentModel.clearNames();
+    }
+
+    @Test
+    void emptyNameIsNotCounted() {
+        assertNull(OpponentModel.named(""));
+    }
+}
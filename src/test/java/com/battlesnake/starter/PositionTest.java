@@ -0,0 +1,116 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PositionTest {
+    private static final int POSITIONS = 500;
+
+    @Test
+    void unmakeRestoresThePositionExactly() {
+        final RandomGames games = new RandomGames(1);
+        for (int i = 0; i < POSITIONS; i++) {
+            final Position position = games.position(7 + games.nextInt(5), 7 + games.nextInt(5),
+                    1 + games.nextInt(4), games.nextInt(60));
+            final int[] targets = new int[position.snakeCount];
+            final List<String> snapshots = new ArrayList<>();
+            final int depth = 1 + games.nextInt(6);
+            for (int ply = 0; ply < depth; ply++) {
+                snapshots.add(snapshot(position));
+                games.moves(position, targets);
+                position.make(targets);
+                assertEquals(position.computeKey(), position.key, "incremental key after make");
+                assertArrayEquals(countOccupancy(position), position.occupancy, "occupancy after make");
+            }
+            for (int ply = depth - 1; ply >= 0; ply--) {
+                position.unmake();
+                assertEquals(snapshots.get(ply), snapshot(position), "position " + i + " after unmake of ply " + ply);
+            }
+        }
+    }
+
+    @Test
+    void makeEqualsApplyAndRebuild() {
+        final RandomGames games = new RandomGames(2);
+        final int[] latencies = new int[4];
+        for (int i = 0; i < POSITIONS; i++) {
+            final Position position = games.position(7 + games.nextInt(5), 7 + games.nextInt(5),
+                    1 + games.nextInt(4), games.nextInt(60));
+            final Position applied = new Position(position.geometry, position.snakeCount);
+            applied.copyFrom(position);
+            final int[] targets = new int[position.snakeCount];
+            games.moves(position, targets);
+            position.make(targets);
+            applied.apply(targets);
+            assertEquals(snapshot(applied), snapshot(position), "apply and make of position " + i);
+            if (!position.alive[0]) {
+                continue;
+            }
+
+            final MoveRequest request = new MoveRequest();
+            request.load(position, 0, latencies);
+            final Position rebuilt = Position.of(new GameState(request, (BitBoard) null));
+            assertEquals(snapshot(position, true), snapshot(rebuilt, true), "rebuild of position " + i);
+            if (rebuilt.snakeCount == position.snakeCount) {
+                assertEquals(rebuilt.key, position.key, "key of rebuilt position " + i);
+            }
+        }
+    }
+
+    private static int[] countOccupancy(final Position position) {
+        final int[] occupancy = new int[position.cellCount];
+        for (int snake = 0; snake < position.snakeCount; snake++) {
+            if (position.alive[snake]) {
+                for (int i = 0; i < position.lengths[snake]; i++) {
+                    occupancy[position.segment(snake, i)]++;
+                }
+            }
+        }
+        return occupancy;
+    }
+
+    private static String snapshot(final Position position) {
+        return snapshot(position, false);
+    }
+
+    /**
+     * Renders the whole state of a position: every snake, food, hazards, the occupancy counts and the key. Ring buffer
+     * slots outside the bodies and the bodies of dead snakes hold no state and are left out.
+     *
+     * @param aliveOnly whether to render only the snakes alive, in order, as a rebuilt position holds them
+     */
+    private static String snapshot(final Position position, final boolean aliveOnly) {
+        final StringBuilder builder = new StringBuilder();
+        for (int snake = 0; snake < position.snakeCount; snake++) {
+            if (aliveOnly && !position.alive[snake]) {
+                continue;
+            }
+            builder.append(aliveOnly ? "" : "snake " + snake + " alive=" + position.alive[snake] + " head="
+                    + position.heads[snake]);
+            if (!position.alive[snake]) {
+                builder.append('\n');
+                continue;
+            }
+            builder.append(" length=").append(position.lengths[snake]);
+            builder.append(" health=").append(position.healths[snake]).append(" body=");
+            for (int i = 0; i < position.lengths[snake]; i++) {
+                builder.append(position.segment(snake, i)).append(',');
+            }
+            builder.append('\n');
+        }
+        for (int cell = 0; cell < position.cellCount; cell++) {
+            builder.append(BitBoard.get(position.food, cell) ? 'f' : '.')
+                    .append(BitBoard.get(position.hazards, cell) ? 'h' : '.')
+                    .append(position.occupancy[cell]);
+        }
+        if (!aliveOnly) {
+            builder.append("\nkey=").append(position.key);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.battlesnake.starter;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random positions for tests: snakes of random length on random cells, random food and hazards, played on with random
+ * moves that mostly avoid bodies, so positions with eating, starvation, collisions and eliminations all turn up.
+ */
+final class RandomGames {
+    private final SplittableRandom random;
+
+    RandomGames(final long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @return a position on a board of the size with the snakes placed and played on for up to {@code turns} turns
+     */
+    Position position(final int width, final int height, final int snakeCount, final int turns) {
+        final Position position = new Position(Geometry.of(width, height, false), snakeCount);
+        position.setHazardDamage(GameState.DEFAULT_HAZARD_DAMAGE);
+        for (int snake = 0; snake < snakeCount; snake++) {
+            position.placeSnake(snake, freeCell(position), 1 + random.nextInt(4));
+        }
+        for (int i = 0; i < 2 + random.nextInt(6); i++) {
+            position.addFood(freeCell(position));
+        }
+        for (int i = 0; i < random.nextInt(8); i++) {
+            position.addHazard(random.nextInt(position.cellCount));
+        }
+        final int[] targets = new int[snakeCount];
+        for (int turn = 0; turn < turns && position.alive[0]; turn++) {
+            moves(position, targets);
+            position.apply(targets);
+            if (random.nextInt(4) == 0) {
+                final int cell = random.nextInt(position.cellCount);
+                if (position.occupancy[cell] == 0) {
+                    position.addFood(cell);
+                }
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Picks a move for every snake: usually a safe one, sometimes any neighbour or off the board.
+     */
+    void moves(final Position position, final int[] targets) {
+        final int[] safe = new int[4];
+        for (int snake = 0; snake < position.snakeCount; snake++) {
+            if (!position.alive[snake]) {
+                targets[snake] = Position.NONE;
+                continue;
+            }
+            final int count = position.safeMoves(snake, safe);
+            if (count > 0 && random.nextInt(10) > 0) {
+                targets[snake] = safe[random.nextInt(count)];
+            } else {
+                targets[snake] = position.geometry.neighbor(position.head(snake), random.nextInt(4));
+            }
+        }
+    }
+
+    int nextInt(final int bound) {
+        return random.nextInt(bound);
+    }
+
+    private int freeCell(final Position position) {
+        int cell;
+        do {
+            cell = random.nextInt(position.cellCount);
+        } while (position.occupancy[cell] != 0 || BitBoard.get(position.food, cell));
+        return cell;
+    }
+}
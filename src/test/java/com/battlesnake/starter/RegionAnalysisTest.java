@@ -0,0 +1,179 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RegionAnalysisTest {
+    private static final int BLOCKED = 1000;
+    private static final int BOARDS = 2000;
+
+    @Test
+    void tailsLeaveCellsOnlyInTime() {
+        // head, free, tail leaving in turn 2, tail leaving in turn 5, free
+        final BitBoard board = new BitBoard(Geometry.of(5, 1, false));
+        board.setOccupationTime(0, BLOCKED);
+        board.setOccupationTime(2, 2);
+        board.setOccupationTime(3, 5);
+        final RegionAnalysis regions = new RegionAnalysis();
+        regions.compute(board, new int[]{1}, 1);
+        assertEquals(2, regions.reachable(0));
+        assertEquals(2, regions.regionSize(1));
+        assertEquals(0, regions.cutOff(1));
+    }
+
+    @Test
+    void movingOntoAnArticulationPointCutsOffTheSmallerPieces() {
+        // #.#..
+        // H....
+        // #.#.9
+        // Moving right of the head cuts off the cells above and below it. The tail leaving in turn 3 on the right
+        // is reached in time, the one leaving in turn 9 is not.
+        final BitBoard board = new BitBoard(Geometry.of(5, 3, false));
+        board.setOccupationTime(cell(board, 0, 1), BLOCKED);
+        board.setOccupationTime(cell(board, 0, 0), BLOCKED);
+        board.setOccupationTime(cell(board, 0, 2), BLOCKED);
+        board.setOccupationTime(cell(board, 2, 0), BLOCKED);
+        board.setOccupationTime(cell(board, 2, 2), BLOCKED);
+        board.setOccupationTime(cell(board, 4, 1), 3);
+        board.setOccupationTime(cell(board, 4, 2), 9);
+        final int right = cell(board, 1, 1);
+        final RegionAnalysis regions = new RegionAnalysis();
+        regions.compute(board, new int[]{right}, 1);
+        assertEquals(9, regions.regionSize(right));
+        assertEquals(7, regions.reachable(0));
+        assertEquals(2, regions.cutOff(right));
+    }
+
+    @Test
+    void reachableAreaIgnoresTheOrderOfTheNeighbours() {
+        final SplittableRandom random = new SplittableRandom(17);
+        final RegionAnalysis regions = new RegionAnalysis();
+        for (int i = 0; i < BOARDS; i++) {
+            final BitBoard board = randomBoard(random);
+            final int head = freeHead(board, random);
+            final int[] neighbors = new int[4];
+            final int count = board.getNeighbors(head, neighbors);
+            final int[] forward = new int[count];
+            regions.compute(board, neighbors, count);
+            for (int j = 0; j < count; j++) {
+                forward[j] = regions.reachable(j);
+            }
+            final int[] reversed = new int[count];
+            for (int j = 0; j < count; j++) {
+                reversed[j] = neighbors[count - 1 - j];
+            }
+            regions.compute(board, reversed, count);
+            for (int j = 0; j < count; j++) {
+                assertEquals(forward[count - 1 - j], regions.reachable(j), "board " + i);
+            }
+        }
+    }
+
+    @Test
+    void reachableAreaMatchesBruteForceWithRetreatingTails() {
+        final SplittableRandom random = new SplittableRandom(5);
+        final RegionAnalysis regions = new RegionAnalysis();
+        for (int i = 0; i < BOARDS; i++) {
+            final BitBoard board = randomBoard(random);
+            final int head = freeHead(board, random);
+            final int[] neighbors = new int[4];
+            final int count = board.getNeighbors(head, neighbors);
+            regions.compute(board, neighbors, count);
+            final boolean[] free = arrivals(board, neighbors, count);
+            for (int j = 0; j < count; j++) {
+                assertEquals(bruteForce(board, free, neighbors[j]), regions.reachable(j), "board " + i);
+            }
+        }
+    }
+
+    private static BitBoard randomBoard(final SplittableRandom random) {
+        final BitBoard board = new BitBoard(Geometry.of(3 + random.nextInt(9), 3 + random.nextInt(9), false));
+        for (int cell = 0; cell < board.cellCount; cell++) {
+            final int kind = random.nextInt(10);
+            if (kind < 2) {
+                board.setOccupationTime(cell, BLOCKED);
+            } else if (kind < 4) {
+                board.setOccupationTime(cell, 2 + random.nextInt(8));
+            }
+        }
+        return board;
+    }
+
+    private static int freeHead(final BitBoard board, final SplittableRandom random) {
+        final int head = random.nextInt(board.cellCount);
+        board.setOccupationTime(head, BLOCKED);
+        return head;
+    }
+
+    /**
+     * @return the cells a snake entering one of the starts next turn reaches by the turn they are free
+     */
+    private static boolean[] arrivals(final BitBoard board, final int[] starts, final int count) {
+        final int[] turns = new int[board.cellCount];
+        final ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int i = 0; i < count; i++) {
+            if (board.occupationTime[starts[i]] <= 1 && turns[starts[i]] == 0) {
+                turns[starts[i]] = 1;
+                queue.add(starts[i]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            final int cell = queue.poll();
+            for (int move = 0; move < 4; move++) {
+                final int next = board.geometry.neighbor(cell, move);
+                if (next != Geometry.NONE && turns[next] == 0 && board.occupationTime[next] <= turns[cell] + 1) {
+                    turns[next] = turns[cell] + 1;
+                    queue.add(next);
+                }
+            }
+        }
+        final boolean[] free = new boolean[board.cellCount];
+        for (int cell = 0; cell < free.length; cell++) {
+            free[cell] = turns[cell] > 0;
+        }
+        return free;
+    }
+
+    /**
+     * @return the start plus the largest group of free cells connected to it once the start is taken
+     */
+    private static int bruteForce(final BitBoard board, final boolean[] free, final int start) {
+        if (!free[start]) {
+            return 0;
+        }
+        int largest = 0;
+        for (int move = 0; move < 4; move++) {
+            final int first = board.geometry.neighbor(start, move);
+            if (first == Geometry.NONE || !free[first]) {
+                continue;
+            }
+            final boolean[] seen = new boolean[board.cellCount];
+            seen[start] = true;
+            seen[first] = true;
+            final ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(first);
+            int size = 0;
+            while (!queue.isEmpty()) {
+                final int cell = queue.poll();
+                size++;
+                for (int direction = 0; direction < 4; direction++) {
+                    final int next = board.geometry.neighbor(cell, direction);
+                    if (next != Geometry.NONE && free[next] && !seen[next]) {
+                        seen[next] = true;
+                        queue.add(next);
+                    }
+                }
+            }
+            largest = Math.max(largest, size);
+        }
+        return 1 + largest;
+    }
+
+    private static int cell(final BitBoard board, final int x, final int y) {
+        return y * board.width + x;
+    }
+}
@@ -0,0 +1,97 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SprtTest {
+    private static final double ELO0 = 0;
+    private static final double ELO1 = 20;
+    private static final double ERROR = 0.05;
+    private static final double DRAWS = 0.2;
+    private static final int RUNS = 200;
+    private static final int BATCH = 16;
+
+    @Test
+    void continuesWithoutGames() {
+        final Sprt sprt = new Sprt(ELO0, ELO1, ERROR, ERROR);
+        assertEquals(0, sprt.llr());
+        assertEquals(0, sprt.elo(), 1e-9);
+        assertEquals(Sprt.CONTINUE, sprt.status());
+    }
+
+    @Test
+    void estimatesEloFromTheScore() {
+        final Sprt sprt = new Sprt(ELO0, ELO1, ERROR, ERROR);
+        sprt.add(50, 50, 0);
+        assertEquals(100, sprt.games());
+        assertEquals(-400 * Math.log10(1 / 0.75 - 1), sprt.elo(), 1e-9);
+    }
+
+    @Test
+    void ratioIsZeroHalfwayBetweenTheHypotheses() {
+        final Sprt sprt = new Sprt(-400 * Math.log10(1 / 0.45 - 1), -400 * Math.log10(1 / 0.55 - 1), ERROR, ERROR);
+        sprt.add(40, 20, 40);
+        assertEquals(0, sprt.llr(), 1e-9);
+        sprt.add(1, 0, 0);
+        assertTrue(sprt.llr() > 0);
+    }
+
+    @Test
+    void acceptsTheTrueHypothesisWithinTheErrorRates() {
+        final SplittableRandom random = new SplittableRandom(1);
+        int falseH1 = 0;
+        int falseH0 = 0;
+        for (int run = 0; run < RUNS; run++) {
+            if (play(random, ELO0) == Sprt.H1) {
+                falseH1++;
+            }
+            if (play(random, ELO1) == Sprt.H0) {
+                falseH0++;
+            }
+        }
+        assertTrue(falseH1 <= 2 * ERROR * RUNS, falseH1 + " false H1 in " + RUNS);
+        assertTrue(falseH0 <= 2 * ERROR * RUNS, falseH0 + " false H0 in " + RUNS);
+    }
+
+    @Test
+    void stopsEarlyForClearDifferences() {
+        final SplittableRandom random = new SplittableRandom(2);
+        final Sprt strong = new Sprt(ELO0, ELO1, ERROR, ERROR);
+        while (strong.status() == Sprt.CONTINUE) {
+            addBatch(random, strong, 200);
+        }
+        assertEquals(Sprt.H1, strong.status());
+        assertTrue(strong.games() < 2000, strong.toString());
+    }
+
+    private static int play(final SplittableRandom random, final double elo) {
+        final Sprt sprt = new Sprt(ELO0, ELO1, ERROR, ERROR);
+        while (sprt.status() == Sprt.CONTINUE) {
+            addBatch(random, sprt, elo);
+        }
+        return sprt.status();
+    }
+
+    private static void addBatch(final SplittableRandom random, final Sprt sprt, final double elo) {
+        final double score = 1 / (1 + Math.pow(10, -elo / 400));
+        final double win = score - DRAWS / 2;
+        long wins = 0;
+        long draws = 0;
+        long losses = 0;
+        for (int i = 0; i < BATCH; i++) {
+            final double r = random.nextDouble();
+            if (r < win) {
+                wins++;
+            } else if (r < win + DRAWS) {
+                draws++;
+            } else {
+                losses++;
+            }
+        }
+        sprt.add(wins, draws, losses);
+    }
+}
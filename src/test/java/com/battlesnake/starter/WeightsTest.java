@@ -0,0 +1,67 @@
+package com.battlesnake.starter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WeightsTest {
+    @Test
+    void saveAndLoadRoundTrip() throws IOException {
+        final int[] values = Weights.DEFAULT.values();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.min(Weights.MAX[i], values[i] + Weights.STEPS[i]);
+        }
+        final Weights weights = new Weights(values);
+        withFile(file -> {
+            weights.save(file);
+            assertEquals(weights, Weights.load(file));
+        });
+    }
+
+    @Test
+    void missingWeightsKeepTheirDefaults() throws IOException {
+        withFile(file -> {
+            Files.write(file, (Weights.NAMES[Weights.EDGE_SCORE] + " = -7\n").getBytes());
+            final int[] expected = Weights.DEFAULT.values();
+            expected[Weights.EDGE_SCORE] = -7;
+            assertArrayEquals(expected, Weights.load(file).values());
+        });
+    }
+
+    @Test
+    void unknownWeightIsRejected() throws IOException {
+        withFile(file -> {
+            Files.write(file, "noSuchWeight=1\n".getBytes());
+            assertThrows(IllegalArgumentException.class, () -> Weights.load(file));
+        });
+    }
+
+    @Test
+    void valuesAreClampedToTheirRange() {
+        final int[] values = Weights.DEFAULT.values();
+        values[Weights.HP_THRESHOLD] = Weights.MAX[Weights.HP_THRESHOLD] + 1;
+        values[Weights.LOSING_DUEL_SCORE] = Weights.MIN[Weights.LOSING_DUEL_SCORE] - 1;
+        final Weights weights = new Weights(values);
+        assertEquals(Weights.MAX[Weights.HP_THRESHOLD], weights.hpThreshold);
+        assertEquals(Weights.MIN[Weights.LOSING_DUEL_SCORE], weights.losingDuelScore);
+    }
+
+    private static void withFile(final FileTest test) throws IOException {
+        final Path file = Files.createTempFile("weights", ".properties");
+        try {
+            test.run(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private interface FileTest {
+        void run(Path file) throws IOException;
+    }
+}